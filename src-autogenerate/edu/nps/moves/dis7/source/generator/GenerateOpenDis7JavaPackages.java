@@ -5,6 +5,13 @@
 
 package edu.nps.moves.dis7.source.generator;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.xml.sax.SAXException;
+
 /**
  * GenerateOpenDis7JavaPackages.java created on Jul 17, 2019
  * MOVES Institute, Naval Postgraduate School (NPS), Monterey California USA https://www.nps.edu
@@ -20,9 +27,13 @@ public class GenerateOpenDis7JavaPackages
   public static final String      DEFAULT_LANGUAGE = "java";
   public static final String DEFAULT_SISO_XML_FILE = "xml/SISO/SISO-REF-010.xml";
   public static final String  DEFAULT_PDU_XML_FILE = "xml/dis_7_2012/DIS_7_2012.xml";
+  /** Set system property xmlpg.sisoInMemory=true to parse the SISO XML once and hold it for every generator,
+   *  trading a heap that grows with the file for four fewer parses; by default each generator streams it */
+  public static final boolean SISO_IN_MEMORY = Boolean.parseBoolean(System.getProperty("xmlpg.sisoInMemory"));
 
   static String enumOutputPath       = "src-generated/java/edu/nps/moves/dis7/enumerations";
   static String pduOutputPath        = "src-generated/java";
+  static String benchmarkOutputPath  = "src-generated/benchmark";
   static String jammerOutputPath     = "src-generated/java/edu/nps/moves/dis7/jammers";
   static String objectTypeOutputPath = "src-generated/java/edu/nps/moves/dis7/objectTypes";
   static String entitiesOutputPath   = "src-generated/java/edu/nps/moves/dis7/entities";
@@ -37,29 +48,66 @@ public class GenerateOpenDis7JavaPackages
   public static void main(String[] args)
   {
     System.out.println (GenerateOpenDis7JavaPackages.class.getName());
-    // ENUMERATIONS
-    System.out.println("------------- Generating enumerations in "+enumPackage+" -------------");
-    edu.nps.moves.dis7.source.generator.enumerations.GenerateEnumerations.main(new String[]{DEFAULT_SISO_XML_FILE, enumOutputPath, enumPackage});
-
-    // PDUS and associated objects, legacy classes
-    System.out.println("------------- Generating pdus in "+pduPackage+" -------------");
+    long start = System.nanoTime();
+    // SISO XML for the enumeration, jammer, object type and entity type generators
+    SisoModel sisoModel;
+    try {
+      sisoModel = SISO_IN_MEMORY ? SisoModel.load(DEFAULT_SISO_XML_FILE) : SisoModel.stream(DEFAULT_SISO_XML_FILE);
+    }
+    catch (SAXException | IOException ex) {
+      System.err.println(ex.getClass().getSimpleName() + ": " + ex.getLocalizedMessage());
+      return;
+    }
     System.getProperties().setProperty("xmlpg.generatedSourceDir", pduOutputPath); // legacy parameter passing
     System.getProperties().setProperty("xmlpg.package", pduPackage);
-    edu.nps.moves.dis7.source.generator.pdus.GeneratePdus.main(new String[]{DEFAULT_PDU_XML_FILE, "java"});
+    System.getProperties().setProperty("xmlpg.generateViews", "true");
+    System.getProperties().setProperty("xmlpg.benchmarkSourceDir", benchmarkOutputPath);
 
+    // ENUMERATIONS
+    Runnable enumerations = () -> GeneratorTasks.timed("enumerations", () -> {
+      System.out.println("------------- Generating enumerations in "+enumPackage+" -------------");
+      edu.nps.moves.dis7.source.generator.enumerations.GenerateEnumerations.generate(new String[]{DEFAULT_SISO_XML_FILE, enumOutputPath, enumPackage}, sisoModel);
+    });
+    // PDUS and associated objects, legacy classes
+    Runnable pdus = () -> GeneratorTasks.timed("pdus", () -> {
+      System.out.println("------------- Generating pdus in "+pduPackage+" -------------");
+      edu.nps.moves.dis7.source.generator.pdus.GeneratePdus.main(new String[]{DEFAULT_PDU_XML_FILE, "java"});
+    });
     // JAMMERS
-    System.out.println("------------- Generating jammers in "+jammerPackage+" -------------");
-    edu.nps.moves.dis7.source.generator.entitytypes.GenerateJammers.main(new String[]{DEFAULT_SISO_XML_FILE, jammerOutputPath, jammerPackage});
-
+    Runnable jammers = () -> GeneratorTasks.timed("jammers", () -> {
+      System.out.println("------------- Generating jammers in "+jammerPackage+" -------------");
+      edu.nps.moves.dis7.source.generator.entitytypes.GenerateJammers.generate(new String[]{DEFAULT_SISO_XML_FILE, jammerOutputPath, jammerPackage}, sisoModel);
+    });
     // Object types
-    System.out.println("------------- Generating object types in "+objectTypePackage+" -------------");
-    edu.nps.moves.dis7.source.generator.entitytypes.GenerateObjectTypes.main(new String[]{DEFAULT_SISO_XML_FILE, objectTypeOutputPath, objectTypePackage});
-
+    Runnable objectTypes = () -> GeneratorTasks.timed("object types", () -> {
+      System.out.println("------------- Generating object types in "+objectTypePackage+" -------------");
+      edu.nps.moves.dis7.source.generator.entitytypes.GenerateObjectTypes.generate(new String[]{DEFAULT_SISO_XML_FILE, objectTypeOutputPath, objectTypePackage}, sisoModel);
+    });
     //ENTITIES
-    System.out.println("------------- Generating entity types in "+entitiesPackage+" -------------");
-    edu.nps.moves.dis7.source.generator.entitytypes.GenerateEntityTypes.main(new String[]{DEFAULT_SISO_XML_FILE, entitiesOutputPath, entitiesPackage});
-
-    System.out.println("------------- DIS7 source generation complete -------------");
+    Runnable entities = () -> GeneratorTasks.timed("entity types", () -> {
+      System.out.println("------------- Generating entity types in "+entitiesPackage+" -------------");
+      edu.nps.moves.dis7.source.generator.entitytypes.GenerateEntityTypes.generate(new String[]{DEFAULT_SISO_XML_FILE, entitiesOutputPath, entitiesPackage}, sisoModel);
+    });
 
+    if (GeneratorTasks.PARALLEL) {
+      // entity types look up the enumerations, so follow them; the other phases only share the read-only SISO model
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      ForkJoinTask<?> enumerationsDone = pool.submit(enumerations);
+      List<ForkJoinTask<?>> phases = new ArrayList<>();
+      phases.add(pool.submit(pdus));
+      phases.add(pool.submit(jammers));
+      phases.add(pool.submit(objectTypes));
+      enumerationsDone.join();
+      entities.run();
+      phases.forEach(ForkJoinTask::join);
+    }
+    else {
+      enumerations.run();
+      pdus.run();
+      jammers.run();
+      objectTypes.run();
+      entities.run();
+    }
+    System.out.println("------------- DIS7 source generation complete in " + (System.nanoTime() - start) / 1_000_000 + " ms -------------");
   }
 }
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.source.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the SHA-256 hash of every file a generator phase writes, so that a regeneration rewrites only the files
+ * whose rendered content changed and deletes the files the phase no longer produces.  Files left alone keep their
+ * modification time, so the IDE and the ant build do not recompile them.
+ * The manifest of a phase is a properties file, src-generated/manifest/&lt;phase&gt;.properties unless system
+ * property xmlpg.manifestDir names another directory, mapping each file's absolute path to its hash and the
+ * modification time it was left with.  A manifest for a different output directory, as when the same phase is run
+ * into a scratch directory, is set aside rather than used: its files are neither trusted nor deleted.
+ * Files may be written from several threads at once.
+ */
+public class GeneratedFileManifest
+{
+  /** Set system property xmlpg.manifestDir to keep the manifests somewhere other than src-generated/manifest */
+  public static final String MANIFEST_DIR = System.getProperty("xmlpg.manifestDir", "src-generated/manifest");
+
+  private static final String ROOT_KEY = "@root";
+
+  private final String phase;
+  private final File root;
+  private final File manifestFile;
+  /** File path to "hash mtime", as recorded by the last run */
+  private final Map<String, String> previous = new ConcurrentHashMap<>();
+  private final Map<String, String> current = new ConcurrentHashMap<>();
+
+  private final AtomicInteger written = new AtomicInteger();
+  private final AtomicInteger unchanged = new AtomicInteger();
+
+  private GeneratedFileManifest(String phase, File root)
+  {
+    this.phase = phase;
+    this.root = root.getAbsoluteFile();
+    this.manifestFile = new File(MANIFEST_DIR, phase + ".properties");
+  }
+
+  /**
+   * Reads the manifest left by the last run of a phase
+   * @param phase generator name, which names the manifest file
+   * @param root output directory of the phase
+   * @return the manifest, ready to write files through
+   */
+  public static GeneratedFileManifest open(String phase, File root)
+  {
+    GeneratedFileManifest manifest = new GeneratedFileManifest(phase, root);
+    if (manifest.manifestFile.isFile()) {
+      Properties props = new Properties();
+      try (InputStream ins = new FileInputStream(manifest.manifestFile)) {
+        props.load(ins);
+      }
+      catch (IOException ex) {
+        System.err.println("Ignoring unreadable manifest " + manifest.manifestFile + ": " + ex.getLocalizedMessage());
+        props.clear();
+      }
+      if (manifest.root.getPath().equals(props.getProperty(ROOT_KEY))) {
+        props.remove(ROOT_KEY);
+        for (String path : props.stringPropertyNames())
+          manifest.previous.put(path, props.getProperty(path));
+      }
+    }
+    return manifest;
+  }
+
+  /**
+   * Writes a file unless it already holds the content
+   * @param target file to write
+   * @param content text of the file
+   * @throws IOException if the file cannot be written
+   */
+  public void write(File target, String content) throws IOException
+  {
+    write(target, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writes a file unless it already holds the content
+   * @param target file to write
+   * @param content bytes of the file
+   * @throws IOException if the file cannot be written
+   */
+  public void write(File target, byte[] content) throws IOException
+  {
+    String path = target.getAbsolutePath();
+    String hash = sha256(content);
+    String recorded = previous.get(path);
+    boolean same;
+    if (recorded != null && recorded.equals(hash + " " + target.lastModified()) && target.length() == content.length)
+      same = true; // as the last run left it
+    else
+      same = target.isFile() && target.length() == content.length && Arrays.equals(Files.readAllBytes(target.toPath()), content);
+
+    if (same)
+      unchanged.incrementAndGet();
+    else {
+      target.getAbsoluteFile().getParentFile().mkdirs();
+      try (OutputStream out = new FileOutputStream(target)) {
+        out.write(content);
+      }
+      written.incrementAndGet();
+    }
+    current.put(path, hash + " " + target.lastModified());
+  }
+
+  /**
+   * Deletes the files the last run wrote and this one did not, and saves the manifest.  Call once the phase has
+   * finished without error; a phase that fails part way leaves the old manifest in place.
+   */
+  public void close()
+  {
+    int deleted = 0;
+    for (String path : previous.keySet()) {
+      if (current.containsKey(path))
+        continue;
+      File stale = new File(path);
+      if (stale.delete())
+        deleted++;
+      if (path.startsWith(root.getPath() + File.separator))
+        for (File dir = stale.getParentFile(); dir != null && !dir.equals(root) && isEmptyDirectory(dir); dir = dir.getParentFile())
+          dir.delete();
+    }
+
+    Properties props = new Properties();
+    props.putAll(current);
+    props.setProperty(ROOT_KEY, root.getPath());
+    manifestFile.getAbsoluteFile().getParentFile().mkdirs();
+    try (OutputStream out = new FileOutputStream(manifestFile)) {
+      props.store(out, phase + " generated files: sha-256 and modification time");
+    }
+    catch (IOException ex) {
+      throw new RuntimeException("Error saving " + manifestFile + ": " + ex.getLocalizedMessage(), ex);
+    }
+    System.out.println(phase + ": " + written.get() + " files written, " + unchanged.get() + " unchanged, " + deleted + " deleted");
+  }
+
+  private static boolean isEmptyDirectory(File dir)
+  {
+    String[] children = dir.list();
+    return children != null && children.length == 0;
+  }
+
+  private static String sha256(byte[] content)
+  {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest)
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      return hex.toString();
+    }
+    catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex); // every Java platform has SHA-256
+    }
+  }
+}
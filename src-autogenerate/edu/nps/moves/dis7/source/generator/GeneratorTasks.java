@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.source.generator;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs the rendering and writing of generated classes on the common ForkJoinPool when system property
+ * xmlpg.parallel=true, otherwise at once on the calling thread.  Each task is given the name of the file it writes;
+ * a task for a file already being written waits for the earlier one, so that the last class submitted for a file
+ * wins, as when run in order, and the output does not depend on scheduling.
+ * Tasks are submitted from one thread, the generator's SAX handler.  Finished tasks are let go as more are submitted,
+ * so that the elements they rendered do not stay on the heap until the end of the phase.
+ */
+public class GeneratorTasks
+{
+  /** Set system property xmlpg.parallel=true to run generator phases and per-class work concurrently */
+  public static final boolean PARALLEL = Boolean.parseBoolean(System.getProperty("xmlpg.parallel"));
+
+  /** Number of tasks held before the finished ones are swept out */
+  private static final int SWEEP_THRESHOLD = 1024;
+
+  private final Map<String, ForkJoinTask<?>> submitted = new HashMap<>();
+  private int sweepAt = SWEEP_THRESHOLD;
+  private RuntimeException failure;
+
+  /**
+   * @param key name of the file the task writes
+   * @param task renders and writes one file
+   */
+  public void execute(String key, Runnable task)
+  {
+    if (!PARALLEL) {
+      task.run();
+      return;
+    }
+    ForkJoinTask<?> earlier = submitted.get(key);
+    if (earlier != null)
+      earlier.join();
+    submitted.put(key, ForkJoinPool.commonPool().submit(task));
+    if (submitted.size() >= sweepAt) {
+      sweep();
+      sweepAt = Math.max(SWEEP_THRESHOLD, submitted.size() * 2);
+    }
+  }
+
+  /** Drops the tasks that have finished, keeping the first failure for awaitAll() */
+  private void sweep()
+  {
+    for (Iterator<ForkJoinTask<?>> it = submitted.values().iterator(); it.hasNext();) {
+      ForkJoinTask<?> task = it.next();
+      if (!task.isDone())
+        continue;
+      if (task.isCompletedAbnormally() && failure == null)
+        failure = toRuntimeException(task.getException());
+      it.remove();
+    }
+  }
+
+  private static RuntimeException toRuntimeException(Throwable ex)
+  {
+    return ex instanceof RuntimeException ? (RuntimeException) ex : new RuntimeException(ex);
+  }
+
+  /**
+   * Waits for every task submitted, rethrowing the first failure
+   */
+  public void awaitAll()
+  {
+    for (ForkJoinTask<?> task : submitted.values()) {
+      try {
+        task.join();
+      }
+      catch (RuntimeException ex) {
+        if (failure == null)
+          failure = ex;
+      }
+    }
+    submitted.clear();
+    sweepAt = SWEEP_THRESHOLD;
+    if (failure != null) {
+      RuntimeException first = failure;
+      failure = null;
+      throw first;
+    }
+  }
+
+  /**
+   * Runs a generator phase and reports its wall-clock time
+   * @param name phase name
+   * @param phase the phase
+   */
+  public static void timed(String name, Runnable phase)
+  {
+    long start = System.nanoTime();
+    phase.run();
+    System.out.println("------------- " + name + " took " + (System.nanoTime() - start) / 1_000_000 + " ms -------------");
+  }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.source.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles generated source held in memory with the platform Java compiler and streams the class files, with any
+ * resources, straight into a jar, so that tens of thousands of small generated classes need never be written to and
+ * read back from the file system.  Sources and resources may be added from several threads; the jar lists them in
+ * name order whatever the order they were added in.
+ * The generated code is compiled for Java 8, as the ant build does, against the classpath given, which may include
+ * source directories (src-supporting/java, for example) as well as compiled classes.
+ */
+public class InMemoryJarCompiler
+{
+  /** Attribute of the jar manifest, as the ant jar targets write it */
+  public static final String BUILT_BY = "open-dis7-source-generator https://github.com/open-dis/open-dis7-source-generator";
+  /** Compiler errors reported before the rest are only counted */
+  private static final int MAX_ERRORS_REPORTED = 30;
+
+  private final Map<String, String> sources = new ConcurrentSkipListMap<>();
+  private final Map<String, byte[]> resources = new ConcurrentSkipListMap<>();
+
+  /**
+   * @param className fully qualified name of the top-level class the source declares
+   * @param source Java source text
+   */
+  public void addSource(String className, String source)
+  {
+    sources.put(className, source);
+  }
+
+  /**
+   * @param path jar entry name, e.g. edu/nps/moves/dis7/entities/uid2EntityClass.properties
+   * @param content bytes of the resource
+   */
+  public void addResource(String path, byte[] content)
+  {
+    resources.put(path, content);
+  }
+
+  /**
+   * @param path jar entry name
+   * @param content text of the resource, stored as UTF-8
+   */
+  public void addResource(String path, String content)
+  {
+    addResource(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Compiles every source added and writes the class files and resources to a jar.  The jar is deleted again if any
+   * source fails to compile.
+   * @param jarFile jar to write, replacing any existing file
+   * @param classpath path of classes and source directories the generated sources refer to
+   * @return number of class files written
+   * @throws IOException if a source does not compile or the jar cannot be written
+   */
+  public int writeJar(File jarFile, String classpath) throws IOException
+  {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null)
+      throw new IOException("no Java compiler available; run the generator with a JDK rather than a JRE");
+
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue("Built-By", BUILT_BY);
+
+    if (jarFile.getAbsoluteFile().getParentFile() != null)
+      jarFile.getAbsoluteFile().getParentFile().mkdirs();
+    int classCount;
+    boolean compiled = false;
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarFile), manifest)) {
+      for (Map.Entry<String, byte[]> resource : resources.entrySet())
+        putEntry(jar, resource.getKey(), resource.getValue());
+
+      List<JavaFileObject> units = new ArrayList<>(sources.size());
+      for (Map.Entry<String, String> source : sources.entrySet())
+        units.add(new SourceObject(source.getKey(), source.getValue()));
+
+      DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+      List<String> options = Arrays.asList("-source", "1.8", "-target", "1.8", "-Xlint:-options", "-nowarn",
+                                           "-encoding", "UTF-8", "-implicit:none",
+                                           "-classpath", classpath, "-sourcepath", classpath);
+      try (JarFileManager fileManager = new JarFileManager(compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8), jar)) {
+        compiled = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+        classCount = fileManager.classCount;
+      }
+      if (!compiled)
+        throw new IOException(report(diagnostics) + " compiling generated sources into " + jarFile);
+    }
+    finally {
+      if (!compiled)
+        jarFile.delete();
+    }
+    return classCount;
+  }
+
+  private static void putEntry(JarOutputStream jar, String name, byte[] content) throws IOException
+  {
+    jar.putNextEntry(new JarEntry(name));
+    jar.write(content);
+    jar.closeEntry();
+  }
+
+  /** Prints the first errors and returns a count of them all */
+  private static String report(DiagnosticCollector<JavaFileObject> diagnostics)
+  {
+    int errors = 0;
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() != Diagnostic.Kind.ERROR)
+        continue;
+      if (errors++ < MAX_ERRORS_REPORTED)
+        System.err.println(diagnostic);
+    }
+    return errors + " errors";
+  }
+
+  /** Generated source text, named for its class as javac expects */
+  private static class SourceObject extends SimpleJavaFileObject
+  {
+    private final String source;
+
+    SourceObject(String className, String source)
+    {
+      super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors)
+    {
+      return source;
+    }
+  }
+
+  /** Sends each class file the compiler writes to the jar as soon as it is complete */
+  private static class JarFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+  {
+    private final JarOutputStream jar;
+    int classCount;
+
+    JarFileManager(StandardJavaFileManager fileManager, JarOutputStream jar)
+    {
+      super(fileManager);
+      this.jar = jar;
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, JavaFileObject.Kind kind, FileObject sibling)
+    {
+      String entryName = className.replace('.', '/') + kind.extension;
+      return new SimpleJavaFileObject(URI.create("mem:///" + entryName), kind)
+      {
+        @Override
+        public OutputStream openOutputStream()
+        {
+          return new ByteArrayOutputStream()
+          {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException
+            {
+              if (closed)
+                return;
+              closed = true;
+              synchronized (jar) {
+                putEntry(jar, entryName, toByteArray());
+                classCount++;
+              }
+            }
+          };
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.source.generator;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The SISO-REF-010 element tree as the SAX handlers of GenerateEnumerations, GenerateJammers, GenerateObjectTypes and
+ * GenerateEntityTypes receive it.  The file is read with a StAX pull parser, whose events are passed on to the
+ * handler as SAX callbacks; only element starts (with attributes) and ends are sent, as the generators do not use
+ * character content.
+ * A model made by {@link #stream(String)} holds nothing of the document: each replay pulls the file through once, so
+ * the heap a generator needs is bounded by the largest enum or entity subtree it is building, not by the size of the
+ * file.  A model made by {@link #load(String)} keeps a copy of every element so that a full regeneration parses the
+ * file once instead of five times, at the cost of holding the whole document.
+ * A model is not changed by replaying it, so several handlers may replay the same model, one after another or at
+ * the same time.
+ */
+public class SisoModel
+{
+  private final String xmlFile;
+  /** True if each replay reads the file again, false if the events below are replayed */
+  private final boolean streaming;
+
+  private int eventCount;
+  /** Per event, the element's qualified name, local name and namespace; an end has END as its attributes */
+  private String[] qNames = new String[1024];
+  private String[] localNames = new String[1024];
+  private String[] uris = new String[1024];
+  private Attributes[] attributes = new Attributes[1024];
+
+  private static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+  private static final Attributes END = new AttributesImpl();
+
+  private SisoModel(String xmlFile, boolean streaming)
+  {
+    this.xmlFile = xmlFile;
+    this.streaming = streaming;
+  }
+
+  /**
+   * Parses a SISO XML file once and keeps every element in memory
+   * @param xmlFile the SISO-REF-010 XML file
+   * @return the model, ready to replay
+   * @throws SAXException if the XML is malformed
+   * @throws IOException if the file cannot be read
+   */
+  public static SisoModel load(String xmlFile) throws SAXException, IOException
+  {
+    SisoModel model = new SisoModel(xmlFile, false);
+    pull(xmlFile, model.new Recorder());
+    model.trim();
+    System.out.println(SisoModel.class.getName() + " read " + xmlFile + ", " + model.eventCount + " element events");
+    return model;
+  }
+
+  /**
+   * @param xmlFile the SISO-REF-010 XML file
+   * @return a model that parses the file again on each replay, holding none of it in memory
+   * @throws IOException if the file cannot be read
+   */
+  public static SisoModel stream(String xmlFile) throws IOException
+  {
+    if (!new File(xmlFile).canRead())
+      throw new IOException("cannot read " + xmlFile);
+    return new SisoModel(xmlFile, true);
+  }
+
+  /**
+   * @return the XML file the model was read from
+   */
+  public String getXmlFile()
+  {
+    return xmlFile;
+  }
+
+  /**
+   * Sends the document to a handler as a SAX parser would
+   * @param handler receives startDocument, startElement, endElement and endDocument
+   * @throws SAXException if the handler throws it, or a streamed file is malformed
+   * @throws IOException if a streamed file cannot be read
+   */
+  public void replay(DefaultHandler handler) throws SAXException, IOException
+  {
+    if (streaming) {
+      pull(xmlFile, handler);
+      return;
+    }
+    handler.startDocument();
+    for (int i = 0; i < eventCount; i++) {
+      if (attributes[i] == END)
+        handler.endElement(uris[i], localNames[i], qNames[i]);
+      else
+        handler.startElement(uris[i], localNames[i], qNames[i], attributes[i]);
+    }
+    handler.endDocument();
+  }
+
+  /**
+   * Pulls the elements of a file through a StAX reader and hands each to the handler as it arrives.  The Attributes
+   * passed to startElement are reused for the next element, as a SAX parser's are.
+   */
+  private static void pull(String xmlFile, DefaultHandler handler) throws SAXException, IOException
+  {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+    AttributesImpl atts = new AttributesImpl();
+    try (InputStream ins = new BufferedInputStream(new FileInputStream(xmlFile))) {
+      XMLStreamReader reader = factory.createXMLStreamReader(new File(xmlFile).toURI().toString(), ins);
+      try {
+        handler.startDocument();
+        while (reader.hasNext()) {
+          switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+              atts.clear();
+              for (int i = 0; i < reader.getAttributeCount(); i++)
+                atts.addAttribute(uri(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i),
+                                  qName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                                  reader.getAttributeType(i), reader.getAttributeValue(i));
+              handler.startElement(uri(reader.getNamespaceURI()), reader.getLocalName(), qName(reader.getPrefix(), reader.getLocalName()), atts);
+              break;
+
+            case XMLStreamConstants.END_ELEMENT:
+              handler.endElement(uri(reader.getNamespaceURI()), reader.getLocalName(), qName(reader.getPrefix(), reader.getLocalName()));
+              break;
+
+            default:
+              break;
+          }
+        }
+        handler.endDocument();
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (XMLStreamException ex) {
+      throw new SAXException(xmlFile + ": " + ex.getLocalizedMessage(), ex);
+    }
+  }
+
+  private static String uri(String namespace)
+  {
+    return namespace == null ? "" : namespace;
+  }
+
+  private static String qName(String prefix, String localName)
+  {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private void add(String uri, String localName, String qName, Attributes atts)
+  {
+    if (eventCount == qNames.length) {
+      int length = eventCount * 2;
+      qNames = Arrays.copyOf(qNames, length);
+      localNames = Arrays.copyOf(localNames, length);
+      uris = Arrays.copyOf(uris, length);
+      attributes = Arrays.copyOf(attributes, length);
+    }
+    qNames[eventCount] = qName;
+    localNames[eventCount] = localName;
+    uris[eventCount] = uri;
+    attributes[eventCount] = atts;
+    eventCount++;
+  }
+
+  private void trim()
+  {
+    qNames = Arrays.copyOf(qNames, eventCount);
+    localNames = Arrays.copyOf(localNames, eventCount);
+    uris = Arrays.copyOf(uris, eventCount);
+    attributes = Arrays.copyOf(attributes, eventCount);
+  }
+
+  /** Copies each element, sharing the strings of repeated element and attribute names */
+  private class Recorder extends DefaultHandler
+  {
+    private final Map<String, String> names = new HashMap<>();
+
+    private String shared(String s)
+    {
+      if (s == null)
+        return null;
+      String existing = names.putIfAbsent(s, s);
+      return existing == null ? s : existing;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+    {
+      Attributes copy = NO_ATTRIBUTES;
+      if (atts.getLength() > 0) {
+        AttributesImpl impl = new AttributesImpl();
+        for (int i = 0; i < atts.getLength(); i++)
+          impl.addAttribute(shared(atts.getURI(i)), shared(atts.getLocalName(i)), shared(atts.getQName(i)),
+                            shared(atts.getType(i)), atts.getValue(i));
+        copy = impl;
+      }
+      add(shared(uri), shared(localName), shared(qName), copy);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName)
+    {
+      add(shared(uri), shared(localName), shared(qName), END);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.source.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generator template text with %s placeholders, as String.format takes it, split once into the literal segments
+ * between the placeholders.  Rendering then only appends the segments and arguments to a StringBuilder, where
+ * String.format would parse the whole template again for every class or row written.  Arguments are rendered with
+ * String.valueOf, as %s renders them, and arguments beyond the placeholders are ignored, as String.format ignores
+ * them.  %% is a literal percent sign; the template files use no other conversion, so any other is refused.
+ * Templates are immutable and may be rendered from several threads at once.
+ */
+public class Template
+{
+  /** Literal text before each placeholder, then the text after the last */
+  private final String[] segments;
+
+  private Template(String[] segments)
+  {
+    this.segments = segments;
+  }
+
+  /**
+   * @param text template with %s placeholders
+   * @return the template, ready to render
+   * @throws IllegalArgumentException if the text holds a conversion other than %s or %%
+   */
+  public static Template compile(String text)
+  {
+    List<String> segments = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int from = 0;
+    for (int at = text.indexOf('%'); at >= 0; at = text.indexOf('%', from)) {
+      literal.append(text, from, at);
+      char conversion = at + 1 < text.length() ? text.charAt(at + 1) : ' ';
+      if (conversion == 's') {
+        segments.add(literal.toString());
+        literal.setLength(0);
+      }
+      else if (conversion == '%')
+        literal.append('%');
+      else
+        throw new IllegalArgumentException("template conversion %" + conversion + " at " + at + " is not supported, only %s and %%");
+      from = at + 2;
+    }
+    literal.append(text, from, text.length());
+    segments.add(literal.toString());
+    return new Template(segments.toArray(new String[0]));
+  }
+
+  /**
+   * Renders the template onto the end of a StringBuilder
+   * @param sb receives the rendered text
+   * @param args one per placeholder, in order
+   * @return sb
+   * @throws IllegalArgumentException if there are fewer arguments than placeholders
+   */
+  public StringBuilder appendTo(StringBuilder sb, Object... args)
+  {
+    if (args.length < segments.length - 1)
+      throw new IllegalArgumentException("template has " + (segments.length - 1) + " placeholders, given " + args.length + " arguments");
+    sb.append(segments[0]);
+    for (int i = 1; i < segments.length; i++)
+      sb.append(args[i - 1]).append(segments[i]);
+    return sb;
+  }
+
+  /**
+   * @param args one per placeholder, in order
+   * @return the rendered text
+   * @throws IllegalArgumentException if there are fewer arguments than placeholders
+   */
+  public String render(Object... args)
+  {
+    return appendTo(new StringBuilder(), args).toString();
+  }
+}
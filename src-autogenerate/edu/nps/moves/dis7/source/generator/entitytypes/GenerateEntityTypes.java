@@ -5,15 +5,22 @@
 
 package edu.nps.moves.dis7.source.generator.entitytypes;
 
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import edu.nps.moves.dis7.source.generator.GeneratorTasks;
+import edu.nps.moves.dis7.source.generator.GeneratedFileManifest;
+import edu.nps.moves.dis7.source.generator.InMemoryJarCompiler;
+import edu.nps.moves.dis7.source.generator.SisoModel;
+import edu.nps.moves.dis7.source.generator.Template;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -36,14 +43,42 @@ public class GenerateEntityTypes
 {
     // set defaults to allow direct run
     private        File   outputDirectory;
+    private GeneratedFileManifest manifest;
     private static String outputDirectoryPath = "src-generated/java/edu/nps/moves/dis7/entitytypes";
     private static String         packageName =                    "edu.nps.moves.dis7.entitytypes";
     private static String            language = edu.nps.moves.dis7.source.generator.GenerateOpenDis7JavaPackages.DEFAULT_LANGUAGE;
     private static String         sisoXmlFile = edu.nps.moves.dis7.source.generator.GenerateOpenDis7JavaPackages.DEFAULT_SISO_XML_FILE;
 
-  private BufferedWriter uid2ClassWriter = null;
+  /** Lines of uid2EntityClass.properties, saved once all entity types are seen */
+  private StringBuilder uid2ClassLines = null;
+
+  /** Set system property xmlpg.entityClasses=false to write only the catalogue and key files, no class per entity type */
+  private final boolean writeEntityClasses = !"false".equalsIgnoreCase(System.getProperty("xmlpg.entityClasses", "true"));
+
+  /** Set system property xmlpg.entityJar to a jar file to compile the entity classes in memory straight into it */
+  private final String entityJar = System.getProperty("xmlpg.entityJar");
+  /** With xmlpg.entityJar, set xmlpg.emitSources=true to write the sources under the output directory as well */
+  private final boolean emitSources = entityJar == null || Boolean.parseBoolean(System.getProperty("xmlpg.emitSources"));
+  /** Collects the entity sources and resources for xmlpg.entityJar */
+  private InMemoryJarCompiler jarCompiler;
+  /** Entity class files named so far */
+  private final Set<String> classFileNames = new HashSet<>();
+
+  /** Identifies an entity type catalogue file, "ETC1" */
+  static final int CATALOGUE_MAGIC = 0x45544331;
+  static final String CATALOGUE_FILE = "entityTypeCatalogue.bin";
+
+  class CatalogueEntry
+  {
+    long packedKey;
+    int uid;
+    String description;
+  }
+  private final List<CatalogueEntry> catalogue = new ArrayList<>();
     
-  String entityCommonTemplate;
+  Template entityCommonTemplate;
+  /** Setter statement of the generated constructors, compiled once rather than formatted per row */
+  private static final Template SET_BYTE_TEMPLATE = Template.compile("        set%s((byte)%s); // uid %s, %s\n");
   String uidFactoryTemplate;
 
   class DataPkt
@@ -64,6 +99,12 @@ public class GenerateEntityTypes
     private String entityUid;
   }
 
+  /** SISO XML already read by GenerateOpenDis7JavaPackages, or null to parse sisoXmlFile */
+  private SisoModel sisoModel;
+
+  /** Writes the entity class files, concurrently when xmlpg.parallel=true */
+  private final GeneratorTasks tasks = new GeneratorTasks();
+
   public GenerateEntityTypes(String xmlFile, String outputDir, String packageName)
   {
         if (!xmlFile.isEmpty())
@@ -179,36 +220,45 @@ public class GenerateEntityTypes
     return enumGetter.invoke(null, i);
   }
 
-  private void run() throws SAXException, IOException, ParserConfigurationException
+  private void run(SisoModel sisoModel) throws SAXException, IOException, ParserConfigurationException
   {
-    outputDirectory.mkdirs();
+    this.sisoModel = sisoModel;
+    if (emitSources)
+      outputDirectory.mkdirs();
 //  FileUtils.cleanDirectory(outputDirectory); // do NOT clean directory, results can co-exist with other classes
+    if (emitSources)
+      manifest = GeneratedFileManifest.open("entityTypes", outputDirectory); // rewrite only what changed
+    if (entityJar != null)
+      jarCompiler = new InMemoryJarCompiler();
     
-    SAXParserFactory factory = SAXParserFactory.newInstance();
-    factory.setValidating(false);
-    factory.setNamespaceAware(true);
-    factory.setXIncludeAware(true);
-
     loadTemplates();
     buildKindDomainCountryInstances(); // TODO unit test before built?
     
     System.out.println("Generating entities:");
     MyHandler handler = new MyHandler();
-    factory.newSAXParser().parse(new File(sisoXmlFile), handler);
+    if (sisoModel == null)
+      sisoModel = SisoModel.stream(sisoXmlFile);
+    sisoModel.replay(handler);
+    tasks.awaitAll();
     
-    if(uid2ClassWriter != null) 
-    {
-       uid2ClassWriter.flush();
-       uid2ClassWriter.close();
-    }
-    saveUidFactory();
+    if(uid2ClassLines != null)
+       saveResource("uid2EntityClass.properties", uid2ClassLines.toString().getBytes(StandardCharsets.UTF_8));
+    catalogue.sort((a, b) -> a.packedKey != b.packedKey ? Long.compareUnsigned(a.packedKey, b.packedKey) : Integer.compare(a.uid, b.uid));
+    saveKeyFile();
+    if (writeEntityClasses)
+      saveUidFactory();
+    saveCatalogue();
+    if (manifest != null)
+      manifest.close();
+    if (jarCompiler != null)
+      writeEntityJar();
     System.out.println (GenerateEntityTypes.class.getName() + " complete."); // TODO  + handler.enums.size() + " enums created.");
   }
 
   private void loadTemplates()
   {
     try {
-      entityCommonTemplate = loadOneTemplate("entitytypecommon.txt");
+      entityCommonTemplate = Template.compile(loadOneTemplate("entitytypecommon.txt"));
       uidFactoryTemplate   = loadOneTemplate("uidfactory.txt");
     }
     catch (Exception ex) {
@@ -223,7 +273,160 @@ public class GenerateEntityTypes
   
   private void saveUidFactory()
   {
-    saveFile(outputDirectory, "EntityTypeFactory.java",uidFactoryTemplate);
+    saveSource("edu.nps.moves.dis7.entities", outputDirectory, "EntityTypeFactory", uidFactoryTemplate);
+  }
+
+  /**
+   * Compiles the sources collected for xmlpg.entityJar and writes them, with the properties files and catalogue, to
+   * the jar.  The compiler's classpath is that of the generator, which for the ant generate-source-code target
+   * includes the generated, special-case and supporting source directories, unless system property
+   * xmlpg.entityJarClasspath gives another.
+   */
+  private void writeEntityJar() throws IOException
+  {
+    String classpath = System.getProperty("xmlpg.entityJarClasspath", System.getProperty("java.class.path"));
+    long start = System.nanoTime();
+    int classCount = jarCompiler.writeJar(new File(entityJar), classpath);
+    System.out.println("Entity jar " + entityJar + " written, " + classCount + " classes compiled in "
+                     + (System.nanoTime() - start) / 1_000_000 + " ms");
+  }
+
+  /** Adds a source to the entity jar, with xmlpg.entityJar, and writes it to disk unless only the jar is wanted */
+  private void saveSource(String pkg, File parentDir, String clsNm, String contents)
+  {
+    if (jarCompiler != null)
+      jarCompiler.addSource(pkg + "." + clsNm, contents);
+    if (emitSources)
+      saveFile(parentDir, clsNm + ".java", contents);
+  }
+
+  /** Adds a resource to the entity jar, with xmlpg.entityJar, and writes it to disk unless only the jar is wanted */
+  private void saveResource(String name, byte[] content) throws IOException
+  {
+    if (jarCompiler != null)
+      jarCompiler.addResource(packageName.replace('.', '/') + "/" + name, content);
+    if (emitSources)
+      manifest.write(new File(outputDirectory, name), content);
+  }
+
+  /**
+   * Writes the entity types as a binary file read by edu.nps.moves.dis7.EntityTypeCatalogue, all values big-endian:
+   * <pre>
+   * int magic "ETC1", int count, int offset of the string table, int offset of the trie
+   * count records sorted by unsigned key then uid: long packed key, int uid, int offset of the description in the string table
+   * count uid index entries sorted by uid: int uid, int record number
+   * string table: per description, unsigned short length then that many UTF-8 bytes
+   * trie: per level (kind, domain, country, category, subcategory, specific), int node count n, n unsigned short
+   *   field values, then n + 1 ints where node i's children are entries first[i] to first[i+1] - 1 of the next level;
+   *   below the specific level the "children" are record numbers
+   * </pre>
+   * Records are in key order, so the records below any trie node are contiguous.
+   */
+  /** Bits to shift a packed key right by to bring each trie level's field to the bottom, and the field widths */
+  private static final int[] TRIE_SHIFTS = {56, 48, 32, 24, 16, 8};
+  private static final int[] TRIE_MASKS  = {0xFF, 0xFF, 0xFFFF, 0xFF, 0xFF, 0xFF};
+
+  /** Writes the trie over the sorted catalogue; a node starts wherever the key prefix down to its level changes */
+  private void writeTrie(DataOutputStream dos) throws IOException
+  {
+    List<List<Integer>> nodeStarts = new ArrayList<>(); // per level, the first record below each node
+    for (int level = 0; level < TRIE_SHIFTS.length; level++) {
+      List<Integer> starts = new ArrayList<>();
+      int shift = TRIE_SHIFTS[level];
+      for (int i = 0; i < catalogue.size(); i++)
+        if (i == 0 || (catalogue.get(i).packedKey >>> shift) != (catalogue.get(i - 1).packedKey >>> shift))
+          starts.add(i);
+      nodeStarts.add(starts);
+    }
+    for (int level = 0; level < TRIE_SHIFTS.length; level++) {
+      List<Integer> starts = nodeStarts.get(level);
+      dos.writeInt(starts.size());
+      for (int start : starts)
+        dos.writeShort((int) (catalogue.get(start).packedKey >>> TRIE_SHIFTS[level]) & TRIE_MASKS[level]);
+      if (level == TRIE_SHIFTS.length - 1) {
+        for (int start : starts)
+          dos.writeInt(start);
+        dos.writeInt(catalogue.size());
+      }
+      else {
+        // every node start is also the start of a node one level down
+        List<Integer> childStarts = nodeStarts.get(level + 1);
+        int child = 0;
+        for (int start : starts) {
+          while (childStarts.get(child) != start)
+            child++;
+          dos.writeInt(child);
+        }
+        dos.writeInt(childStarts.size());
+      }
+    }
+  }
+
+  /**
+   * Writes the entity type fields, packed as marshalled, against the uid for EntityTypeFactory.uidFor(), from the
+   * sorted catalogue, so where types repeat only the first, lowest, uid is written, as EntityTypeCatalogue.uidFor() finds
+   */
+  private void saveKeyFile() throws IOException
+  {
+    if (catalogue.isEmpty())
+      return;
+    StringBuilder key2UidLines = new StringBuilder();
+    for (int i = 0; i < catalogue.size(); i++) {
+      CatalogueEntry entry = catalogue.get(i);
+      if (i > 0 && catalogue.get(i - 1).packedKey == entry.packedKey)
+        continue;
+      String hex = Long.toHexString(entry.packedKey); // as %016x, without parsing a format per entity type
+      key2UidLines.append("0000000000000000", hex.length(), 16).append(hex).append('=').append(entry.uid).append(System.lineSeparator());
+    }
+    saveResource("entityTypeKey2Uid.properties", key2UidLines.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Writes the catalogue, which the caller has sorted by unsigned key then uid */
+  private void saveCatalogue()
+  {
+    try {
+      ByteArrayOutputStream strings = new ByteArrayOutputStream();
+      DataOutputStream stringOut = new DataOutputStream(strings);
+      int[] descriptionOffsets = new int[catalogue.size()];
+      for (int i = 0; i < catalogue.size(); i++) {
+        descriptionOffsets[i] = stringOut.size();
+        byte[] utf8 = catalogue.get(i).description.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(utf8.length, 0xFFFF);
+        stringOut.writeShort(length);
+        stringOut.write(utf8, 0, length);
+      }
+
+      Integer[] byUid = new Integer[catalogue.size()];
+      for (int i = 0; i < byUid.length; i++)
+        byUid[i] = i;
+      java.util.Arrays.sort(byUid, Comparator.comparingInt(i -> catalogue.get(i).uid));
+
+      File f = new File(outputDirectory, CATALOGUE_FILE);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream dos = new DataOutputStream(bytes)) {
+        dos.writeInt(CATALOGUE_MAGIC);
+        dos.writeInt(catalogue.size());
+        int stringTableOffset = 16 + catalogue.size() * (16 + 8);
+        dos.writeInt(stringTableOffset);
+        dos.writeInt(stringTableOffset + strings.size());
+        for (int i = 0; i < catalogue.size(); i++) {
+          dos.writeLong(catalogue.get(i).packedKey);
+          dos.writeInt(catalogue.get(i).uid);
+          dos.writeInt(descriptionOffsets[i]);
+        }
+        for (Integer i : byUid) {
+          dos.writeInt(catalogue.get(i).uid);
+          dos.writeInt(i);
+        }
+        strings.writeTo(dos);
+        writeTrie(dos);
+      }
+      saveResource(CATALOGUE_FILE, bytes.toByteArray());
+      System.out.println("Entity type catalogue " + (emitSources ? f.getPath() : CATALOGUE_FILE) + " written, " + catalogue.size() + " entity types");
+    }
+    catch (IOException ex) {
+      throw new RuntimeException("Error saving " + CATALOGUE_FILE + ": " + ex.getLocalizedMessage(), ex);
+    }
   }
   
   class DescriptionElem
@@ -267,7 +470,10 @@ public class GenerateEntityTypes
 
   public class MyHandler extends DefaultHandler
   {
-    ArrayList<EntityElem> entities = new ArrayList<>();
+    /** Text of the class being rendered, reused for each class */
+    private final StringBuilder classText = new StringBuilder(4096);
+    // only the elements on the path to the current one, and their siblings for setUniquePkgAndEmail, are kept;
+    // each subtree is written as its end element arrives and then let go
     EntityElem currentEntity;
     CategoryElem currentCategory;
     SubCategoryElem currentSubCategory;
@@ -313,7 +519,6 @@ public class GenerateEntityTypes
           currentEntity.domain = attributes.getValue("domain");
           currentEntity.country = attributes.getValue("country");
           currentEntity.uid = attributes.getValue("uid");
-          entities.add(currentEntity);
           break;
 
         case "category":
@@ -409,24 +614,32 @@ public class GenerateEntityTypes
             break;
 
           case "entity":
+            if (currentEntity != null)
+              currentEntity.categories.clear();
             currentEntity = null;
             break;
 
           case "category":
-            if (currentCategory != null) //might have been deprecated
+            if (currentCategory != null) { //might have been deprecated
               writeCategoryFile(null);
+              currentCategory.children.clear();
+            }
             currentCategory = null;
             break;
 
           case "subcategory":
-            if (currentSubCategory != null) // might have been deprecated
+            if (currentSubCategory != null) { // might have been deprecated
                 writeSubCategoryFile(null);
+                currentSubCategory.children.clear();
+            }
             currentSubCategory = null;
             break;
 
           case "specific":
-            if (currentSpecific != null) // might have been deprecated)
+            if (currentSpecific != null) { // might have been deprecated)
               writeSpecificFile(null);
+              currentSpecific.children.clear();
+            }
             currentSpecific = null;
             break;
 
@@ -458,56 +671,67 @@ public class GenerateEntityTypes
     
     private void addToPropertiesFile(String pkg, String clsNm, String uid)
     {
-      try {
-        if(uid2ClassWriter == null)
-          buildUid2ClassWriter();
-        uid2ClassWriter.write(uid+"="+pkg+"."+clsNm);
-        uid2ClassWriter.newLine();
-      }
-      catch(IOException ex) {
-        throw new RuntimeException (ex);
-      }
+      if(uid2ClassLines == null)
+        uid2ClassLines = new StringBuilder();
+      uid2ClassLines.append(uid+"="+pkg+"."+clsNm).append(System.lineSeparator());
     }
-    
-    private void buildUid2ClassWriter() throws IOException
+
+    /**
+     * The 64 bits of an entity type as marshalled: kind, domain, 16-bit country, category, subcategory, specific, extra
+     * @param levels category, then subcategory, specific and extra as deep as the entity goes
+     */
+    private long packedKey(DescriptionElem... levels)
     {
-      File f = new File(outputDirectory,"uid2EntityClass.properties");
-      f.createNewFile();
-      uid2ClassWriter = new BufferedWriter(new FileWriter(f));
+      long key = (Long.parseLong(currentEntity.kind) & 0xFF) << 56
+               | (Long.parseLong(currentEntity.domain) & 0xFF) << 48
+               | (Long.parseLong(currentEntity.country) & 0xFFFF) << 32;
+      for (int i = 0; i < levels.length; i++)
+        key |= (Long.parseLong(levels[i].value) & 0xFF) << (24 - 8 * i);
+      return key;
     }
     
-    private void saveEntityFile(DataPkt data, String uid)
+    private void saveEntityFile(DataPkt data, String uid, long packedKey)
     {
-      data.sb.append("    }\n}\n");
-      saveFile(data.directory, data.clsNm + ".java", data.sb.toString());
-      addToPropertiesFile(data.pkg, data.clsNm, uid);
+      if (writeEntityClasses) {
+        data.sb.append("    }\n}\n");
+        File directory = data.directory;
+        String pkg = data.pkg;
+        String clsNm = data.clsNm;
+        String contents = data.sb.toString();
+        tasks.execute(new File(directory, clsNm + ".java").getPath(), () -> saveSource(pkg, directory, clsNm, contents));
+        addToPropertiesFile(data.pkg, data.clsNm, uid);
+      }
+
+      CatalogueEntry entry = new CatalogueEntry();
+      entry.packedKey = packedKey;
+      entry.uid = Integer.parseInt(uid);
+      entry.description = data.fullName;
+      catalogue.add(entry);
     }
   
     private void appendCommonStatements(DataPkt data)
     {
-      String contents = String.format(entityCommonTemplate, data.pkg, 
-                                      specTitleDate, data.fullName, 
-                                      data.countryNamePretty, data.entKindNmDescription, data.domainVal, data.entityUid,
-                                      data.clsNm, data.clsNm, data.countryNm, data.entKindNm, data.domainName, data.domainVal);
-      data.sb.append(contents);
+      entityCommonTemplate.appendTo(data.sb, data.pkg, 
+                                    specTitleDate, data.fullName, 
+                                    data.countryNamePretty, data.entKindNmDescription, data.domainVal, data.entityUid,
+                                    data.clsNm, data.clsNm, data.countryNm, data.entKindNm, data.domainName, data.domainVal);
     }
 
     private void appendStatement(DescriptionElem elem, String typ, StringBuilder sb)
     {
-      String template = "        set"+typ+"((byte)%s); // uid %s, %s\n";
-      sb.append(String.format(template, elem.value, elem.uid, elem.description));
+      SET_BYTE_TEMPLATE.appendTo(sb, typ, elem.value, elem.uid, elem.description);
     }
     
     private void writeCategoryFile(DataPkt d)
     {
       DataPkt data = d;
       if (data == null) {
-        data = buildEntityCommon(currentCategory.toString(), fixName(currentCategory),currentCategory.uid);
+        data = buildEntityCommon(currentCategory.description, fixName(currentCategory),currentCategory.uid);
       }
       appendStatement(currentCategory, "Category", data.sb);
 
       if (d == null) {
-        saveEntityFile(data,currentCategory.uid);
+        saveEntityFile(data,currentCategory.uid,packedKey(currentCategory));
       }
     }
 
@@ -515,34 +739,34 @@ public class GenerateEntityTypes
     {
       DataPkt data = d;
       if (data == null) {
-        data = buildEntityCommon(currentSubCategory.toString(), fixName(currentSubCategory), currentSubCategory.uid);
+        data = buildEntityCommon(currentSubCategory.description, fixName(currentSubCategory), currentSubCategory.uid);
       }
       appendStatement(currentCategory, "Category", data.sb);
       appendStatement(currentSubCategory, "SubCategory", data.sb);
 
       if (d == null)
-        saveEntityFile(data,currentSubCategory.uid);
+        saveEntityFile(data,currentSubCategory.uid,packedKey(currentCategory,currentSubCategory));
     }
 
     private void writeSpecificFile(DataPkt d)
     {
       DataPkt data = d;
       if (data == null) {
-        data = buildEntityCommon(currentSpecific.toString(), fixName(currentSpecific),currentSpecific.uid);
+        data = buildEntityCommon(currentSpecific.description, fixName(currentSpecific),currentSpecific.uid);
       }
       appendStatement(currentCategory, "Category", data.sb);
       appendStatement(currentSubCategory, "SubCategory", data.sb);
       appendStatement(currentSpecific, "Specific", data.sb);
 
       if (d == null)
-        saveEntityFile(data,currentSpecific.uid);
+        saveEntityFile(data,currentSpecific.uid,packedKey(currentCategory,currentSubCategory,currentSpecific));
     }
 
     private void writeExtraFile(DataPkt d)
     {
       DataPkt data = d;
       if (data == null) {
-        data = buildEntityCommon(currentExtra.toString(), fixName(currentExtra),currentExtra.uid);
+        data = buildEntityCommon(currentExtra.description, fixName(currentExtra),currentExtra.uid);
       }
       appendStatement(currentCategory, "Category", data.sb);
       appendStatement(currentSubCategory, "SubCategory", data.sb);
@@ -550,7 +774,7 @@ public class GenerateEntityTypes
       appendStatement(currentExtra, "Extra", data.sb);
 
       if (d == null)
-        saveEntityFile(data,currentExtra.uid);
+        saveEntityFile(data,currentExtra.uid,packedKey(currentCategory,currentSubCategory,currentSpecific,currentExtra));
     }
 
     private DataPkt buildEntityCommon(String fullName, String fixedName, String uid)
@@ -561,16 +785,19 @@ public class GenerateEntityTypes
         if  (fullName == null)
              data.fullName = "";
         else data.fullName = fullName;
-        data.sb = new StringBuilder();
+        data.sb = classText; // each class is rendered to a String before the next is begun
+        data.sb.setLength(0);
 //        System.err.println("buildEntityCommon fixedName=" + fixedName + ", uid=" + uid + ", outputDirectory=" + outputDirectory); // debug trace
         
         buildPackagePath(currentEntity, data);
         data.directory = new File(outputDirectory, data.sb.toString());
-        data.directory.mkdirs(); // ensure that directory exists
+        if (writeEntityClasses && emitSources)
+          data.directory.mkdirs(); // ensure that directory exists
 
-        // Protect against duplicate class names
+        // Protect against duplicate class names, going by the names given this run rather than the files on disk,
+        // which are left from the last run, or not yet written by a parallel task, or not written at all for a jar
         int i=1;
-        while(new File(data.directory,fixedName+".java").exists()){
+        while(!classFileNames.add(new File(data.directory,fixedName+".java").getPath())){
           fixedName = fixedName+ i++;
         }
 //        System.err.println("fixedName.java=" + fixedName + ".java"); // debug trace
@@ -641,11 +868,7 @@ public class GenerateEntityTypes
     // save file
     File target = new File(parentDir, name);
     try {
-      target.createNewFile();
-      try (FileWriter fw = new FileWriter(target, StandardCharsets.UTF_8)) {
-        fw.write(contents);
-        fw.flush();
-      }
+      manifest.write(target, contents);
     }
     catch (IOException ex) {
       throw new RuntimeException("Error saving " + name + ": " + ex.getLocalizedMessage(), ex);
@@ -942,12 +1165,22 @@ public class GenerateEntityTypes
   }
 
   public static void main(String[] args)
+  {
+    generate(args, null);
+  }
+
+  /**
+   * Runs the generator as main() does, replaying a SISO model read once for all the generators
+   * @param args SISO XML file, output directory and package name, or none for the defaults
+   * @param sisoModel the SISO XML already read, or null to parse the file
+   */
+  public static void generate(String[] args, SisoModel sisoModel)
   {
     try 
     {
         if  (args.length == 0)
-             new GenerateEntityTypes("",      "",      ""     ).run(); // use defaults
-        else new GenerateEntityTypes(args[0], args[1], args[2]).run();
+             new GenerateEntityTypes("",      "",      ""     ).run(sisoModel); // use defaults
+        else new GenerateEntityTypes(args[0], args[1], args[2]).run(sisoModel);
     }
     catch (SAXException | IOException | ParserConfigurationException ex)
     {
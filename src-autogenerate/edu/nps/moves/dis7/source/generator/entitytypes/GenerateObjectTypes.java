@@ -6,14 +6,15 @@
 package edu.nps.moves.dis7.source.generator.entitytypes;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import edu.nps.moves.dis7.source.generator.GeneratedFileManifest;
+import edu.nps.moves.dis7.source.generator.SisoModel;
+import edu.nps.moves.dis7.source.generator.Template;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -30,12 +31,17 @@ public class GenerateObjectTypes
 {
     // set defaults to allow direct run
     private        File   outputDirectory;
+    private GeneratedFileManifest manifest;
     private static String outputDirectoryPath = "src-generated/java/edu/nps/moves/dis7/entitytypes";
     private static String         packageName =                    "edu.nps.moves.dis7.entitytypes";
     private static String            language = edu.nps.moves.dis7.source.generator.GenerateOpenDis7JavaPackages.DEFAULT_LANGUAGE;
     private static String         sisoXmlFile = edu.nps.moves.dis7.source.generator.GenerateOpenDis7JavaPackages.DEFAULT_SISO_XML_FILE;
 
-    String objectTypeTemplate;
+    Template objectTypeTemplate;
+    /** Setter statements of the generated constructors, compiled once rather than formatted per row */
+    private static final Template SET_BYTE_TEMPLATE   = Template.compile("        set%s((byte)%s); // %s\n");
+    private static final Template SET_KIND_TEMPLATE   = Template.compile("        set%s(ObjectKind.getEnumForValue(%s)); // %s\n");
+    private static final Template SET_DOMAIN_TEMPLATE = Template.compile("        set%s(PlatformDomain.getEnumForValue(%s));\n");
 
   class DataPkt
   {
@@ -45,6 +51,9 @@ public class GenerateObjectTypes
     String clsNm;
   }
 
+  /** SISO XML already read by GenerateOpenDis7JavaPackages, or null to parse sisoXmlFile */
+  private SisoModel sisoModel;
+
   public GenerateObjectTypes(String xmlFile, String outputDir, String packageName)
   {
         if (!xmlFile.isEmpty())
@@ -62,21 +71,21 @@ public class GenerateObjectTypes
         System.out.println ("actual directory path=" + outputDirectory.getAbsolutePath());
   }
 
-  private void run() throws SAXException, IOException, ParserConfigurationException
+  private void run(SisoModel sisoModel) throws SAXException, IOException, ParserConfigurationException
   {
+    this.sisoModel = sisoModel;
     outputDirectory.mkdirs();
 //  FileUtils.cleanDirectory(outputDirectory); // do NOT clean directory, results can co-exist with other classes
-
-    SAXParserFactory factory = SAXParserFactory.newInstance();
-    factory.setValidating(false);
-    factory.setNamespaceAware(true);
-    factory.setXIncludeAware(true);
+    manifest = GeneratedFileManifest.open("objectTypes", outputDirectory); // rewrite only what changed
 
     loadTemplates();
 
     //System.out.println("Generating jammers: ");
     MyHandler handler = new MyHandler();
-    factory.newSAXParser().parse(new File(sisoXmlFile), handler);
+    if (sisoModel == null)
+      sisoModel = SisoModel.stream(sisoXmlFile);
+    sisoModel.replay(handler);
+    manifest.close();
     System.out.println (GenerateObjectTypes.class.getName() + " complete."); // TODO  + handler.enums.size() + " enums created.");
   }
 
@@ -90,9 +99,9 @@ public class GenerateObjectTypes
     }
   }
 
-  private String loadOneTemplate(String s) throws Exception
+  private Template loadOneTemplate(String s) throws Exception
   {
-    return new String(Files.readAllBytes(Paths.get(getClass().getResource(s).toURI())), StandardCharsets.UTF_8.name());
+    return Template.compile(new String(Files.readAllBytes(Paths.get(getClass().getResource(s).toURI())), StandardCharsets.UTF_8.name()));
   }
 
   class DescriptionElem
@@ -132,6 +141,8 @@ public class GenerateObjectTypes
 
   public class MyHandler extends DefaultHandler
   {
+    /** Text of the class being rendered, reused for each class */
+    private final StringBuilder classText = new StringBuilder(4096);
     CotElem currentCot;
     ObjectElem currentObject;
     CategoryElem currentCategory;
@@ -275,32 +286,27 @@ public class GenerateObjectTypes
 
     private void appendCommonStatements(DataPkt data)
     {
-      String contents = String.format(objectTypeTemplate, data.pkg,
+      objectTypeTemplate.appendTo(data.sb, data.pkg,
         specTitleDate, currentCot.uid,data.clsNm,data.clsNm);
-      data.sb.append(contents);
     }
 
     private void appendCategoryValueStatement(CategoryElem elem, String typ, StringBuilder sb)
     {
-      String template = "        set" + typ + "((byte)%s); // %s\n";
-      sb.append(String.format(template, elem.value, elem.description));
+      SET_BYTE_TEMPLATE.appendTo(sb, typ, elem.value, elem.description);
     }
     private void appendSubCategoryValueStatement(SubCategoryElem elem, String typ, StringBuilder sb)
     {
-      String template = "        set" + typ + "((byte)%s); // %s\n";
-      sb.append(String.format(template, elem.value, elem.description));
+      SET_BYTE_TEMPLATE.appendTo(sb, typ, elem.value, elem.description);
     }
    
     private void appendKindStatement(ObjectElem elem, String typ, StringBuilder sb)
     {
-       String template = "        set" + typ + "(ObjectKind.getEnumForValue(%s)); // %s\n";
-       sb.append(String.format(template, elem.kind, elem.description));
+       SET_KIND_TEMPLATE.appendTo(sb, typ, elem.kind, elem.description);
     }
     
      private void appendDomainStatement(CotElem cot, String typ, StringBuilder sb)
     {
-       String template = "        set" + typ + "(PlatformDomain.getEnumForValue(%s));\n";
-       sb.append(String.format(template, cot.domain));
+       SET_DOMAIN_TEMPLATE.appendTo(sb, typ, cot.domain);
     }
   
     private void writeCotFile(DataPkt d)
@@ -360,7 +366,8 @@ public class GenerateObjectTypes
     {
       try {
         DataPkt data = new DataPkt();
-        data.sb = new StringBuilder();
+        data.sb = classText; // each class is written before the next is begun
+        data.sb.setLength(0);
         buildPackagePathAbstract(elem, data.sb);
 
         data.directory = new File(outputDirectory, data.sb.toString());
@@ -391,11 +398,7 @@ public class GenerateObjectTypes
     // save file
     File target = new File(parentDir, name);
     try {
-      target.createNewFile();
-      try (FileWriter fw = new FileWriter(target, StandardCharsets.UTF_8)) {
-        fw.write(contents);
-        fw.flush();
-      }
+      manifest.write(target, contents);
     }
     catch (IOException ex) {
       throw new RuntimeException("Error saving " + name + ": " + ex.getLocalizedMessage(), ex);
@@ -636,11 +639,21 @@ public class GenerateObjectTypes
   }
 
   public static void main(String[] args)
+  {
+    generate(args, null);
+  }
+
+  /**
+   * Runs the generator as main() does, replaying a SISO model read once for all the generators
+   * @param args SISO XML file, output directory and package name, or none for the defaults
+   * @param sisoModel the SISO XML already read, or null to parse the file
+   */
+  public static void generate(String[] args, SisoModel sisoModel)
   {
     try {
         if  (args.length == 0)
-             new GenerateObjectTypes("",      "",      ""     ).run(); // use defaults
-        else new GenerateObjectTypes(args[0], args[1], args[2]).run();
+             new GenerateObjectTypes("",      "",      ""     ).run(sisoModel); // use defaults
+        else new GenerateObjectTypes(args[0], args[1], args[2]).run(sisoModel);
     }
     catch (SAXException | IOException | ParserConfigurationException ex) {
       System.err.println(ex.getClass().getSimpleName() + ": " + ex.getLocalizedMessage());
@@ -6,9 +6,7 @@
 package edu.nps.moves.dis7.source.generator.enumerations;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -18,8 +16,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import edu.nps.moves.dis7.source.generator.GeneratedFileManifest;
+import edu.nps.moves.dis7.source.generator.GeneratorTasks;
+import edu.nps.moves.dis7.source.generator.SisoModel;
+import edu.nps.moves.dis7.source.generator.Template;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
 import org.apache.commons.io.FileUtils;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -35,6 +36,7 @@ public class GenerateEnumerations
 {
     // set defaults to allow direct run
     private        File   outputDirectory;
+    private GeneratedFileManifest manifest;
     private static String outputDirectoryPath = "src-generated/java/edu/nps/moves/dis7/enumerations";
     private static String         packageName =                    "edu.nps.moves.dis7.enumerations";
     private static String            language = edu.nps.moves.dis7.source.generator.GenerateOpenDis7JavaPackages.DEFAULT_LANGUAGE;
@@ -47,28 +49,42 @@ public class GenerateEnumerations
     private Set<String> uidDoNotGenerate;
     private Map<String,String> uid2ExtraInterface;
 
-    private String enumTemplate1;
-    private String enumTemplate1WithFootnote;
-    private String enumCommentTemplate;
-    private String enumFootnoteCommentTemplate;
-    private String enumTemplate2;
-    private String enumTemplate21;
-    private String enumTemplate25;
-    private String enumTemplate3_8;
-    private String enumTemplate3_16;
-    private String enumTemplate3_32;
-    private String dictEnumTemplate1;
-    private String dictEnumTemplate2;
-    private String dictEnumTemplate3;
-    private String bitsetTemplate1;
-    private String bitsetTemplate15;
-    private String bitsetTemplate16;
-    private String bitsetTemplate2;
-    private String bitsetXrefCommentTemplate;
-    private String bitsetCommentTemplate;
+    private Template enumTemplate1;
+    private Template enumTemplate1WithFootnote;
+    private Template enumCommentTemplate;
+    private Template enumFootnoteCommentTemplate;
+    private Template enumTemplate2;
+    private Template enumTemplate21;
+    private Template enumTemplate25;
+    private Template enumLookupDenseTemplate;
+    private Template enumLookupSparseTemplate;
+
+    /** Enumeration value ranges up to this size always get a dense getEnumForValue() lookup table */
+    private static final int DENSE_LOOKUP_MIN_SPAN = 256;
+    /** Larger ranges get a dense table only if it needs no more than this many slots per defined value */
+    private static final int DENSE_LOOKUP_FILL_FACTOR = 4;
+    private Template enumTemplate3_8;
+    private Template enumTemplate3_16;
+    private Template enumTemplate3_32;
+    private Template dictEnumTemplate1;
+    private Template dictEnumTemplate2;
+    private Template dictEnumTemplate3;
+    private Template bitsetTemplate1;
+    private Template bitsetTemplate15;
+    private Template bitsetTemplate16;
+    private Template bitsetTemplate2;
+    private Template bitfieldTemplate1;
+    private Template bitfieldTemplate2;
+    private Template bitsetXrefCommentTemplate;
+    private Template bitsetCommentTemplate;
 
     private String specTitleDate = null;
 
+    /** Bitfields up to this many bits are generated as long-backed DisBitField subclasses */
+    private static final int MAX_PRIMITIVE_BITFIELD_SIZE = 64;
+    /** Set system property xmlpg.bitfieldBacking=bitset to generate every bitfield as a java.util.BitSet-backed DisBitSet */
+    private final boolean primitiveBitfields = !"bitset".equalsIgnoreCase(System.getProperty("xmlpg.bitfieldBacking", "primitive"));
+
     public GenerateEnumerations(String xmlFile, String outputDir, String packageName)
     {
         System.out.println (GenerateEnumerations.class.getName());
@@ -86,10 +102,11 @@ public class GenerateEnumerations
         System.out.println ("actual directory path=" + outputDirectory.getAbsolutePath());
     }
 
-    private void run() throws SAXException, IOException, ParserConfigurationException
+    private void run(SisoModel sisoModel) throws SAXException, IOException, ParserConfigurationException
     {
         outputDirectory.mkdirs();
     //  FileUtils.cleanDirectory(outputDirectory); // do NOT clean directory, results can co-exist with other classes
+        manifest = GeneratedFileManifest.open("enumerations", outputDirectory); // rewrite only what changed
         // Manual:
         uid2ClassName = new Properties();
         uid2ClassName.load(getClass().getResourceAsStream("Uid2ClassName.properties"));
@@ -128,19 +145,18 @@ public class GenerateEnumerations
             System.out.println(ent.getKey() + " " + ent.getValue());
         }
          */
-        File xmlFile = new File(sisoXmlFile);
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        factory.setValidating(false);
-        factory.setNamespaceAware(true);
-        factory.setXIncludeAware(true);
+        if (sisoModel == null)
+            sisoModel = SisoModel.stream(sisoXmlFile); // each pass pulls the file through, keeping none of it
         System.out.println("Begin uid preprocess...");
-        factory.newSAXParser().parse(xmlFile,new UidCollector());
+        sisoModel.replay(new UidCollector());
 
         System.out.println("Begin enum generation ...");
         MyHandler handler = new MyHandler();
-        factory.newSAXParser().parse(xmlFile, handler); // apparently can't reuse xmlFile
+        sisoModel.replay(handler);
+        handler.tasks.awaitAll();
+        manifest.close();
 
-        System.out.println (GenerateEnumerations.class.getName() + " complete, " + handler.enums.size() + " enums created.");
+        System.out.println (GenerateEnumerations.class.getName() + " complete, " + handler.enumCount + " enums created.");
     }
         /**
          * Replace special characters in name with underscore _ character
@@ -172,8 +188,8 @@ public class GenerateEnumerations
         }
 
     /**
+     * Loads and compiles each template once; their %s placeholders are filled in as by
      * https://docs.oracle.com/javase/8/docs/api/java/lang/String.html#format-java.lang.String-java.lang.Object...-
-     * https://docs.oracle.com/javase/8/docs/api/java/util/Formatter.html#syntax
      */
     private void loadEnumTemplates()
     {
@@ -185,6 +201,8 @@ public class GenerateEnumerations
             enumTemplate2 = loadOneTemplate("disenumpart2.txt");
             enumTemplate21 = loadOneTemplate("disenumpart21.txt");
             enumTemplate25 = loadOneTemplate("disenumpart25.txt");
+            enumLookupDenseTemplate = loadOneTemplate("disenumlookupdense.txt");
+            enumLookupSparseTemplate = loadOneTemplate("disenumlookupsparse.txt");
             enumTemplate3_32 = loadOneTemplate("disenumpart3_32.txt");
             enumTemplate3_16 = loadOneTemplate("disenumpart3_16.txt");
             enumTemplate3_8 = loadOneTemplate("disenumpart3_8.txt");
@@ -195,6 +213,8 @@ public class GenerateEnumerations
             bitsetTemplate15 = loadOneTemplate("disbitset15.txt");
             bitsetTemplate16 = loadOneTemplate("disbitset16.txt");
             bitsetTemplate2 = loadOneTemplate("disbitset2.txt");
+            bitfieldTemplate1 = loadOneTemplate("disbitfield1.txt");
+            bitfieldTemplate2 = loadOneTemplate("disbitfield2.txt");
             bitsetXrefCommentTemplate = loadOneTemplate("disbitsetcommentxref.txt");
             bitsetCommentTemplate = loadOneTemplate("disbitsetcomment.txt");
         }
@@ -203,9 +223,9 @@ public class GenerateEnumerations
         }
     }
 
-    private String loadOneTemplate(String s) throws Exception
+    private Template loadOneTemplate(String s) throws Exception
     {
-        return new String(Files.readAllBytes(Paths.get(getClass().getResource(s).toURI())));
+        return Template.compile(new String(Files.readAllBytes(Paths.get(getClass().getResource(s).toURI()))));
     }
 
     class EnumElem
@@ -286,15 +306,16 @@ public class GenerateEnumerations
 
     public class MyHandler extends DefaultHandler
     {
-        List<EnumElem> enums = new ArrayList<>();
+        // each enum, dictionary and bitfield is only counted once written, so that none outlives its end element
+        int enumCount;
         EnumElem currentEnum;
         EnumRowElem currentEnumRow;
 
-        List<DictionaryElem> dictionaries = new ArrayList<>();
+        int dictionaryCount;
         DictionaryElem currentDict;
         DictionaryRowElem currentDictRow;
 
-        List<BitfieldElem> bitfields = new ArrayList<>();
+        int bitfieldCount;
         BitfieldElem currentBitfield;
         BitfieldRowElem currentBitfieldRow;
 
@@ -321,7 +342,7 @@ public class GenerateEnumerations
                     currentEnum.footnote = attributes.getValue("footnote");
                     if (currentEnum.footnote != null)
                         currentEnum.footnote.replaceAll("—","-").replaceAll("–","-").replaceAll("\"", "").replaceAll("\'", ""); // mdash
-                    enums.add(currentEnum);
+                    enumCount++;
                     //maybeSysOut(attributes.getValue("xref"), "enum uid " + currentEnum.uid + " " + currentEnum.name);
                     break;
 
@@ -364,7 +385,7 @@ public class GenerateEnumerations
                     currentBitfield.name = fixName(attributes.getValue("name")); // name canonicalization C14N
                     currentBitfield.size = attributes.getValue("size");
                     currentBitfield.uid = attributes.getValue("uid");
-                    bitfields.add(currentBitfield);
+                    bitfieldCount++;
                     //maybeSysOut(attributes.getValue("xref"), "bitfieldrow uid " + currentBitfield.uid + " " + currentBitfield.name);
                     break;
 
@@ -389,7 +410,7 @@ public class GenerateEnumerations
                     currentDict = new DictionaryElem();
                     currentDict.name = fixName(attributes.getValue("name")); // name canonicalization C14N
                     currentDict.uid = attributes.getValue("uid");
-                    dictionaries.add(currentDict);
+                    dictionaryCount++;
                     //maybeSysOut(attributes.getValue("xref"), "dict uid " + currentDict.uid + " " + currentDict.name);
                     break;
 
@@ -426,13 +447,24 @@ public class GenerateEnumerations
             }
         }
 
+        /** Each class is rendered and written on its own task; the handler's state is only read by them */
+        GeneratorTasks tasks = new GeneratorTasks();
+
+        private void submit(String uid, Runnable writeOut)
+        {
+            String clsName = uidClassNames.get(uid);
+            tasks.execute(clsName == null ? "uid " + uid : clsName, writeOut);
+        }
+
         @Override
         public void endElement(String uri, String localName, String qName)
         {
             switch (qName) {
                 case "enum":
-                    if (currentEnum != null)
-                       writeOutEnum(currentEnum);
+                    if (currentEnum != null) {
+                       EnumElem el = currentEnum;
+                       submit(el.uid, () -> writeOutEnum(el));
+                    }
                     currentEnum = null;
                     break;
 
@@ -441,8 +473,10 @@ public class GenerateEnumerations
                     break;
 
                 case "bitfield":
-                    if (currentBitfield != null)
-                        writeOutBitfield(currentBitfield);
+                    if (currentBitfield != null) {
+                        BitfieldElem el = currentBitfield;
+                        submit(el.uid, () -> writeOutBitfield(el));
+                    }
                     currentBitfield = null;
                     break;
 
@@ -451,8 +485,10 @@ public class GenerateEnumerations
                     break;
 
                 case "dict":
-                    if (currentDict != null)
-                        writeOutDict(currentDict);
+                    if (currentDict != null) {
+                        DictionaryElem el = currentDict;
+                        submit(el.uid, () -> writeOutDict(el));
+                    }
                     currentDict = null;
                     break;
 
@@ -462,8 +498,6 @@ public class GenerateEnumerations
             }
         }
 
-        Set<String> dictNames = new HashSet<>();
-
         private void writeOutDict(DictionaryElem el)
         {
             String clsName = uidClassNames.get(el.uid); //Main.this.uid2ClassName.getProperty(el.uid);
@@ -487,9 +521,9 @@ public class GenerateEnumerations
             if (otherIf != null)
                 additionalInterface = ", " + otherIf;
 
-            sb.append(String.format(dictEnumTemplate1, specTitleDate, packageName, "UID " + el.uid, classNameCorrected, additionalInterface));
+            dictEnumTemplate1.appendTo(sb, specTitleDate, packageName, "UID " + el.uid, classNameCorrected, additionalInterface);
 
-            dictNames.clear();
+            Set<String> dictNames = new HashSet<>();
             // enum section
             if (el.elems.size() > 2000)
             {
@@ -499,7 +533,7 @@ public class GenerateEnumerations
             el.elems.forEach((row) -> {
                 String name = row.value.replaceAll("[^a-zA-Z0-9]", ""); // only chars and numbers
                 if (!dictNames.contains(name)) {
-                    sb.append(String.format(dictEnumTemplate2, name, row.description.replaceAll("\"", "").replaceAll("\'", "")));
+                    dictEnumTemplate2.appendTo(sb, name, row.description.replaceAll("\"", "").replaceAll("\'", ""));
                     dictNames.add(name);
                 }
                 else
@@ -511,18 +545,13 @@ public class GenerateEnumerations
             sb.append(";\n");
 
             // footer section
-            sb.append(String.format(dictEnumTemplate3, classNameCorrected, classNameCorrected));
+            dictEnumTemplate3.appendTo(sb, classNameCorrected, classNameCorrected);
 
             // save file
             File target = new File(outputDirectory, classNameCorrected + ".java");
             target.getParentFile().mkdirs();
-            FileWriter fw;
             try {
-                target.createNewFile();
-                fw = new FileWriter(target, StandardCharsets.UTF_8);
-                fw.write(sb.toString());
-                fw.flush();
-                fw.close();
+                manifest.write(target, sb.toString());
             }
             catch (IOException ex) {
                 System.out.flush();
@@ -551,8 +580,9 @@ public class GenerateEnumerations
       
             String otherInf = uid2ExtraInterface.get(el.uid);
 
-            sb.append(String.format(bitsetTemplate1, packageName, specTitleDate, "UID " + el.uid, el.size, el.name, classNameCorrected, (otherInf==null?"":"implements "+otherInf)));
-            enumNames.clear();
+            boolean primitive = primitiveBitfields && el.size != null && Integer.parseInt(el.size) <= MAX_PRIMITIVE_BITFIELD_SIZE;
+            (primitive ? bitfieldTemplate1 : bitsetTemplate1).appendTo(sb, packageName, specTitleDate, "UID " + el.uid, el.size, el.name, classNameCorrected, (otherInf==null?"":"implements "+otherInf));
+            Set<String> enumNames = new HashSet<>();
             if (el.elems.size() > 2000)
             {
                 System.out.println ("Enumerations class " + packageName + classNameCorrected + " has " + el.elems.size() +
@@ -563,30 +593,29 @@ public class GenerateEnumerations
                 if (row.xrefclassuid != null)
                     xrefName = uidClassNames.get(row.xrefclassuid); //Main.this.uid2ClassName.getProperty(row.xrefclassuid);
                 if (xrefName != null) {
-                    sb.append(String.format(bitsetXrefCommentTemplate, htmlize((row.description==null?"":row.description.replaceAll("\"", "").replaceAll("\'", "")+", ")),xrefName));
-                    sb.append(String.format(bitsetTemplate16, createEnumName(row.name), row.bitposition, row.length, xrefName));
+                    bitsetXrefCommentTemplate.appendTo(sb, htmlize((row.description==null?"":row.description.replaceAll("\"", "").replaceAll("\'", "")+", ")),xrefName);
+                    bitsetTemplate16.appendTo(sb, createEnumName(row.name, enumNames), row.bitposition, row.length, xrefName);
                 }
                 else {
                     if(row.description != null)
-                        sb.append(String.format(bitsetCommentTemplate, (htmlize(row.description.replaceAll("\"", "").replaceAll("\'", "")))));
-                    sb.append(String.format(bitsetTemplate15, createEnumName(row.name), row.bitposition, row.length));
+                        bitsetCommentTemplate.appendTo(sb, (htmlize(row.description.replaceAll("\"", "").replaceAll("\'", ""))));
+                    bitsetTemplate15.appendTo(sb, createEnumName(row.name, enumNames), row.bitposition, row.length);
                 }
             });
             if (el.elems.size() > 0)
                 sb.setLength(sb.length() - 2);
             sb.append(";\n");
 
-            sb.append(String.format(bitsetTemplate2, classNameCorrected, el.size, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected));
+            int byteSize = (Integer.parseInt(el.size) + Byte.SIZE - 1) / Byte.SIZE;
+            if (primitive)
+                bitfieldTemplate2.appendTo(sb, byteSize, classNameCorrected, el.size, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected);
+            else
+                bitsetTemplate2.appendTo(sb, byteSize, classNameCorrected, el.size, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected);
 
             // save file
             File target = new File(outputDirectory, classNameCorrected + ".java");
-            FileWriter fw;
             try {
-                target.createNewFile();
-                fw = new FileWriter(target, StandardCharsets.UTF_8);
-                fw.write(sb.toString());
-                fw.flush();
-                fw.close();
+                manifest.write(target, sb.toString());
             }
             catch (IOException ex) {
                 System.out.flush();
@@ -596,10 +625,6 @@ public class GenerateEnumerations
             }
         }
 
-        Set<String> enumNames = new HashSet<>();
-        
-        List<EnumRowElem> additionalRowElements = new ArrayList<>(); // overflow to avoid dreaded "code too large" error
-
         private void writeOutEnum(EnumElem el)
         {
             String clsName = uidClassNames.get(el.uid); //Main.this.uid2ClassName.getProperty(el.uid);
@@ -653,18 +678,19 @@ public class GenerateEnumerations
             */
             /* enumeration initial template, de-spacify name */
             if(el.footnote == null)
-              sb.append(String.format(enumTemplate1,             packageName, specTitleDate,  "UID " + el.uid, el.size, el.name, classNameCorrected, additionalInterface));
+              enumTemplate1.appendTo(sb, packageName, specTitleDate,  "UID " + el.uid, el.size, el.name, classNameCorrected, additionalInterface);
             else
-              sb.append(String.format(enumTemplate1WithFootnote, packageName, specTitleDate,  "UID " + el.uid, el.size, el.name, el.footnote, classNameCorrected, additionalInterface));
+              enumTemplate1WithFootnote.appendTo(sb, packageName, specTitleDate,  "UID " + el.uid, el.size, el.name, el.footnote, classNameCorrected, additionalInterface);
 
-            enumNames.clear();
+            Set<String> enumNames = new HashSet<>();
+            List<EnumRowElem> additionalRowElements = new ArrayList<>(); // overflow to avoid dreaded "code too large" error
             // enum section
             if (el.elems.isEmpty())
             {
                 String elementName = "(undefined element)";
                 if (el.name != null)
                        elementName = el.name;
-                sb.append(String.format(enumTemplate2, "SELF", "0", elementName + " details not found in SISO spec"));
+                enumTemplate2.appendTo(sb, "SELF", "0", elementName + " details not found in SISO spec");
                 System.err.println(elementName + " error while generating enumerations: SELF details not found in SISO spec");
             }
             else{
@@ -680,26 +706,26 @@ public class GenerateEnumerations
                 el.elems.forEach((row) -> {                    
                     // Check for aliases
                     if(aliases != null && aliases.getProperty(row.value)!=null)
-                      writeOneEnum(sb,row,aliases.getProperty(row.value));
+                      writeOneEnum(sb,row,aliases.getProperty(row.value), enumNames);
                     else {
-                      String enumName = createEnumName(row.description.replaceAll("\"", "").replaceAll("\'", ""));
-                      writeOneEnum(sb, row, enumName);
+                      String enumName = createEnumName(row.description.replaceAll("\"", "").replaceAll("\'", ""), enumNames);
+                      writeOneEnum(sb, row, enumName, enumNames);
                     }
                   /*  if(row.xrefclassuid != null)
                         xrefName=uidClassNames.get(row.xrefclassuid);
                     
                     if(xrefName == null) {
                         String nm=null;
-                        sb.append(String.format(enumFootnoteCommentTemplate, htmlize(row.descriptionrow.description.replaceAll("\"", "").replaceAll("\'", ""))+( row.footnote==null?"":", "+htmlize(row.footnote))));
-                        sb.append(String.format(enumTemplate2, enumName, row.value, row.description.replaceAll("\"", "").replaceAll("\'", "")));
+                        enumFootnoteCommentTemplate.appendTo(sb, htmlize(row.descriptionrow.description.replaceAll("\"", "").replaceAll("\'", ""))+( row.footnote==null?"":", "+htmlize(row.footnote)));
+                        enumTemplate2.appendTo(sb, enumName, row.value, row.description.replaceAll("\"", "").replaceAll("\'", ""));
                         if(aliases != null && aliases.get(row.value) != null) {
-                           sb.append(String.format(enumFootnoteCommentTemplate, htmlize(row.description)+( row.footnote==null?"":", "+htmlize(row.footnote))));
-                           sb.append(String.format(enumTemplate2, nm = enumName, row.value, row.description.replaceAll("\"", "").replaceAll("\'", "")));
+                           enumFootnoteCommentTemplate.appendTo(sb, htmlize(row.description)+( row.footnote==null?"":", "+htmlize(row.footnote)));
+                           enumTemplate2.appendTo(sb, nm = enumName, row.value, row.description.replaceAll("\"", "").replaceAll("\'", ""));
                         }
                     }
                     else {
-                        sb.append(String.format(enumCommentTemplate,xrefName));
-                        sb.append(String.format(enumTemplate21, createEnumName(row.descriptionrow.description.replaceAll("\"", "").replaceAll("\'", "")), row.value, row.description.replaceAll("\"", "").replaceAll("\'", ""),xrefName));
+                        enumCommentTemplate.appendTo(sb, xrefName);
+                        enumTemplate21.appendTo(sb, createEnumName(row.descriptionrow.description.replaceAll("\"", "").replaceAll("\'", "")), row.value, row.description.replaceAll("\"", "").replaceAll("\'", ""),xrefName);
                     }*/
 
                 });
@@ -727,28 +753,24 @@ public class GenerateEnumerations
             if (el.size == null)
                 el.size = "8";
 
-            sb.append(String.format(enumTemplate25, classNameCorrected, el.size, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected));
+            enumTemplate25.appendTo(sb, classNameCorrected, el.size);
+            writeEnumLookup(sb, el, classNameCorrected);
 
             // footer section
             // Many enums come in with smaller bit widths or in-between bitwidths;  Leave handling the odd balls up to the user 
             // but figure out the smallest primitive size needed to hold it.
             int sz = Integer.parseInt(el.size);
             if(sz <= 8)
-               sb.append(String.format(enumTemplate3_8, classNameCorrected, classNameCorrected, classNameCorrected));
+               enumTemplate3_8.appendTo(sb, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected);
             else if(sz <= 16)
-               sb.append(String.format(enumTemplate3_16, classNameCorrected, classNameCorrected, classNameCorrected));
+               enumTemplate3_16.appendTo(sb, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected);
             else
-               sb.append(String.format(enumTemplate3_32, classNameCorrected, classNameCorrected, classNameCorrected));
+               enumTemplate3_32.appendTo(sb, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected, classNameCorrected);
 
             // save file
             File target = new File(outputDirectory, classNameCorrected + ".java");
-            FileWriter fw;
             try {
-                target.createNewFile();
-                fw = new FileWriter(target, StandardCharsets.UTF_8);
-                fw.write(sb.toString());
-                fw.flush();
-                fw.close();
+                manifest.write(target, sb.toString());
             }
             catch (IOException ex) {
                 System.out.flush();
@@ -758,28 +780,63 @@ public class GenerateEnumerations
             }
         }
         
-      private void writeOneEnum(StringBuilder sb, EnumRowElem row, String enumName)
+        /**
+         * Emit getEnumForValue() backed by a table built once at class initialization.  A dense array
+         * indexed by (value - min) is used when the value range is compact, otherwise a sorted-key binary search.
+         * @param sb output buffer
+         * @param el enumeration being written
+         * @param cls generated enum class name
+         */
+        private void writeEnumLookup(StringBuilder sb, EnumElem el, String cls)
+        {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            boolean dense = !el.elems.isEmpty();
+            for (EnumRowElem row : el.elems) {
+                try {
+                    int v = Integer.parseInt(row.value.trim());
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                catch (NumberFormatException ex) {
+                    dense = false;
+                    break;
+                }
+            }
+            if (el.elems.isEmpty()) { // the "SELF" placeholder row has value 0
+                min = max = 0;
+                dense = true;
+            }
+            long span = dense ? (long) max - min + 1 : 0;
+            if (dense && (span <= DENSE_LOOKUP_MIN_SPAN || span <= (long) DENSE_LOOKUP_FILL_FACTOR * el.elems.size()))
+                enumLookupDenseTemplate.appendTo(sb, min, cls, cls, span, cls, cls, min, min, cls, min, cls);
+            else
+                enumLookupSparseTemplate.appendTo(sb, cls, cls, cls, cls, cls, cls, cls);
+        }
+
+      private void writeOneEnum(StringBuilder sb, EnumRowElem row, String enumName, Set<String> enumNames)
       {
         String xrefName = null;
         if (row.xrefclassuid != null)
           xrefName = uidClassNames.get(row.xrefclassuid);
 
         if (xrefName == null) {
-          sb.append(String.format(enumFootnoteCommentTemplate, htmlize(row.description.replaceAll("\"", "").replaceAll("\'", "")) + (row.footnote == null ? "" : ", " + htmlize(row.footnote))));
-          sb.append(String.format(enumTemplate2, enumName, row.value, row.description.replaceAll("\"", "").replaceAll("\'", "")));
+          enumFootnoteCommentTemplate.appendTo(sb, htmlize(row.description.replaceAll("\"", "").replaceAll("\'", "")) + (row.footnote == null ? "" : ", " + htmlize(row.footnote)));
+          enumTemplate2.appendTo(sb, enumName, row.value, row.description.replaceAll("\"", "").replaceAll("\'", ""));
 
         }
         else {
-          sb.append(String.format(enumCommentTemplate, xrefName));
-          sb.append(String.format(enumTemplate21, createEnumName(row.description.replaceAll("\"", "").replaceAll("\'", "")), row.value, row.description.replaceAll("\"", "").replaceAll("\'", ""), xrefName));
+          enumCommentTemplate.appendTo(sb, xrefName);
+          enumTemplate21.appendTo(sb, createEnumName(row.description.replaceAll("\"", "").replaceAll("\'", ""), enumNames), row.value, row.description.replaceAll("\"", "").replaceAll("\'", ""), xrefName);
         }
       }
         /**
          * Naming conventions for enumeration names
          * @param s enumeration string from XML data file
+         * @param enumNames names already used in the class being written
          * @return normalized name
          */
-        private String createEnumName(String s)
+        private String createEnumName(String s, Set<String> enumNames)
         {
             String r = s.toUpperCase();
             // Convert any of these chars to underbar (u2013 is a hyphen observed in source XML):
@@ -851,11 +908,21 @@ public class GenerateEnumerations
     }
 
     public static void main(String[] args)
+    {
+        generate(args, null);
+    }
+
+    /**
+     * Runs the generator as main() does, replaying a SISO model read once for all the generators
+     * @param args SISO XML file, output directory and package name, or none for the defaults
+     * @param sisoModel the SISO XML already read, or null to parse the file
+     */
+    public static void generate(String[] args, SisoModel sisoModel)
     {
         try {
             if  (args.length == 0)
-                 new GenerateEnumerations("",      "",      ""     ).run(); // use defaults
-            else new GenerateEnumerations(args[0], args[1], args[2]).run();
+                 new GenerateEnumerations("",      "",      ""     ).run(sisoModel); // use defaults
+            else new GenerateEnumerations(args[0], args[1], args[2]).run(sisoModel);
         }
         catch (SAXException | IOException | ParserConfigurationException ex) {
             ex.printStackTrace(System.err);
@@ -82,6 +82,9 @@ public class ClassAttribute
      * consists of primitives
      */    
     protected boolean underlyingTypeIsEnum = false;
+
+    /** If this is a list, true if its elements are SISO bitfields, each marshalling to its MARSHALLED_SIZE */
+    protected boolean underlyingTypeIsBitfield = false;
     
     
     /** Some fields, such as Marking, could have arrays that are treated a C strings. At least on the set
@@ -270,6 +273,24 @@ public class ClassAttribute
     {
         return underlyingTypeIsEnum;
     }
+
+    /**
+     * sets true if the underlying type of a list is a SISO bitfield
+     * @param newValue of interest
+     */
+    public void setUnderlyingTypeIsBitfield(boolean newValue)
+    {
+        underlyingTypeIsBitfield = newValue;
+    }
+
+    /**
+     * returns true if this is a list and the underlying type is a SISO bitfield
+     * @return value of interest
+     */
+    public boolean getUnderlyingTypeIsBitfield()
+    {
+        return underlyingTypeIsBitfield;
+    }
     
     public boolean getCouldBeString()
     {
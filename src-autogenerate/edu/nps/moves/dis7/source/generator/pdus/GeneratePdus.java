@@ -717,6 +717,8 @@ public class GeneratePdus
                 currentClassAttribute.setAttributeKind(ClassAttribute.ClassAttributeType.SISO_BITFIELD);
                 currentClassAttribute.setUnderlyingTypeIsPrimitive(false);
             }
+            else
+                currentClassAttribute.setUnderlyingTypeIsBitfield(true);
 
             for (int idx = 0; idx < attributes.getLength(); idx++) {
                 String nm = attributes.getQName(idx);
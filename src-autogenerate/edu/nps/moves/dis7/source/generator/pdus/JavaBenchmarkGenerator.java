@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+package edu.nps.moves.dis7.source.generator.pdus;
+
+import java.util.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Companion to {@link JavaGenerator} that writes PduBenchmark, a JMH benchmark over every concrete PDU class in the
+ * class model.  Each PDU class is one value of the benchmark's pduClass parameter, so a template change that slows
+ * down or adds garbage to any PDU shows up in the results.  The benchmark needs JMH to compile, so it is written to a
+ * directory of its own, given by system property xmlpg.benchmarkSourceDir, rather than beside the generated PDUs.
+ */
+public class JavaBenchmarkGenerator
+{
+    static final String BENCHMARK_CLASS = "PduBenchmark";
+    static final String BENCHMARK_PACKAGE_SUFFIX = ".benchmarks";
+
+    private final JavaGenerator gen;
+
+    public JavaBenchmarkGenerator(JavaGenerator generator)
+    {
+        gen = generator;
+    }
+
+    /** Concrete PDU classes, generated and hand-written, by name */
+    List<String> pduClasses()
+    {
+        List<String> pduClasses = new ArrayList<>();
+        for (GeneratedClass aClass : gen.classDescriptions.values())
+            if (JavaPduDecoderGenerator.pduTypeOf(aClass) != null)
+                pduClasses.add(aClass.getName());
+        // Hand-written PDUs in src-specialcase are left out of the XML, so they are added by name, as for PduDecoder
+        for (String className : MarshalledLayout.HANDWRITTEN_CLASSES)
+            if (JavaPduDecoderGenerator.handwrittenPduTypeOf(className) != null && !pduClasses.contains(className))
+                pduClasses.add(className);
+        Collections.sort(pduClasses);
+        return pduClasses;
+    }
+
+    /**
+     * Write PduBenchmark.java
+     * @param benchmarkSourceDir root directory of the benchmark sources
+     * @return number of PDU classes benchmarked
+     */
+    public int writeBenchmark(String benchmarkSourceDir)
+    {
+        List<String> pduClasses = pduClasses();
+        String packageName = gen.languageProperties.getProperty("package");
+        String benchmarkPackage = (packageName == null ? "" : packageName) + BENCHMARK_PACKAGE_SUFFIX;
+        File outputFile = new File(benchmarkSourceDir + "/" + benchmarkPackage.replace(".", "/"), BENCHMARK_CLASS + ".java");
+        try {
+            outputFile.getParentFile().mkdirs();
+            StringWriter text = new StringWriter();
+            try (PrintWriter pw = new PrintWriter(text)) {
+                writeBenchmark(pw, packageName, benchmarkPackage, pduClasses);
+            }
+            gen.manifest.write(outputFile, text.toString());
+        }
+        catch (IOException e) {
+            e.printStackTrace(System.err);
+            System.err.println("error creating benchmark source code " + e);
+            return 0;
+        }
+        return pduClasses.size();
+    }
+
+    private void writeBenchmark(PrintWriter pw, String packageName, String benchmarkPackage, List<String> pduClasses)
+    {
+        pw.println(gen.license);
+        pw.println();
+        pw.println("package " + benchmarkPackage + ";");
+        pw.println();
+        if (packageName != null)
+            pw.println("import " + packageName + ".*;");
+        pw.println("import java.io.ByteArrayInputStream;");
+        pw.println("import java.io.ByteArrayOutputStream;");
+        pw.println("import java.io.DataInputStream;");
+        pw.println("import java.io.DataOutputStream;");
+        pw.println("import java.nio.ByteBuffer;");
+        pw.println("import java.util.concurrent.TimeUnit;");
+        pw.println("import org.openjdk.jmh.annotations.*;");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Marshal, unmarshal and getMarshalledSize throughput of every PDU class, on DataOutputStream/DataInputStream,");
+        pw.println(" * heap ByteBuffer, direct ByteBuffer and a plain byte array, plus marshal to a new byte[] and to a pooled direct");
+        pw.println(" * buffer. Each PDU is as constructed, so lists are empty. Run with the gc profiler (ant benchmark does) to see bytes");
+        pw.println(" * allocated per operation as well as operations per second.");
+        pw.println(" * " + gen.specSource);
+        pw.println(" */");
+        pw.println("@State(Scope.Thread)");
+        pw.println("@BenchmarkMode(Mode.Throughput)");
+        pw.println("@OutputTimeUnit(TimeUnit.SECONDS)");
+        pw.println("@Warmup(iterations = 3, time = 1)");
+        pw.println("@Measurement(iterations = 5, time = 1)");
+        pw.println("@Fork(1)");
+        pw.println("public class " + BENCHMARK_CLASS);
+        pw.println("{");
+        pw.println("   @Param({");
+        for (int i = 0; i < pduClasses.size(); i++)
+            pw.println("       \"" + pduClasses.get(i) + "\"" + (i < pduClasses.size() - 1 ? "," : ""));
+        pw.println("   })");
+        pw.println("   public String pduClass;");
+        pw.println();
+        pw.println("   private Pdu pdu;");
+        pw.println("   private ByteArrayOutputStream bytesOut;");
+        pw.println("   private DataOutputStream dos;");
+        pw.println("   private ByteArrayInputStream bytesIn;");
+        pw.println("   private DataInputStream dis;");
+        pw.println("   private ByteBuffer heapBuffer;");
+        pw.println("   private ByteBuffer directBuffer;");
+        pw.println("   private byte[] bytes;");
+        pw.println("   private final DirectBufferPool bufferPool = new DirectBufferPool();");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * @param name simple name of a PDU class");
+        pw.println(" * @return a newly constructed PDU of the class");
+        pw.println(" */");
+        pw.println("static Pdu newPdu(String name)");
+        pw.println("{");
+        pw.println("    switch(name)");
+        pw.println("    {");
+        for (String pduClass : pduClasses)
+            pw.println("        case \"" + pduClass + "\": return new " + pduClass + "();");
+        pw.println("        default: throw new IllegalArgumentException(name);");
+        pw.println("    }");
+        pw.println("}");
+        pw.println();
+        pw.println("@Setup");
+        pw.println("public void setup() throws Exception");
+        pw.println("{");
+        pw.println("    pdu = newPdu(pduClass);");
+        pw.println("    bytesOut = new ByteArrayOutputStream();");
+        pw.println("    dos = new DataOutputStream(bytesOut);");
+        pw.println("    pdu.marshal(dos);");
+        pw.println("    byte[] data = bytesOut.toByteArray();");
+        pw.println("    bytesIn = new ByteArrayInputStream(data);");
+        pw.println("    dis = new DataInputStream(bytesIn);");
+        pw.println("    heapBuffer = ByteBuffer.allocate(data.length);");
+        pw.println("    heapBuffer.put(data);");
+        pw.println("    directBuffer = ByteBuffer.allocateDirect(data.length);");
+        pw.println("    directBuffer.put(data);");
+        pw.println("    bytes = data.clone();");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int marshalDataOutputStream() throws Exception");
+        pw.println("{");
+        pw.println("    bytesOut.reset();");
+        pw.println("    pdu.marshal(dos);");
+        pw.println("    return bytesOut.size();");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int unmarshalDataInputStream() throws Exception");
+        pw.println("{");
+        pw.println("    bytesIn.reset();");
+        pw.println("    return pdu.unmarshal(dis);");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public ByteBuffer marshalHeapByteBuffer() throws Exception");
+        pw.println("{");
+        pw.println("    heapBuffer.clear();");
+        pw.println("    pdu.marshal(heapBuffer);");
+        pw.println("    return heapBuffer;");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int unmarshalHeapByteBuffer() throws Exception");
+        pw.println("{");
+        pw.println("    heapBuffer.clear();");
+        pw.println("    return pdu.unmarshal(heapBuffer);");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public ByteBuffer marshalDirectByteBuffer() throws Exception");
+        pw.println("{");
+        pw.println("    directBuffer.clear();");
+        pw.println("    pdu.marshal(directBuffer);");
+        pw.println("    return directBuffer;");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public byte[] marshalByteArray() throws Exception");
+        pw.println("{");
+        pw.println("    return pdu.marshal();");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int marshalBytes()");
+        pw.println("{");
+        pw.println("    return pdu.marshal(bytes, 0);");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int unmarshalBytes()");
+        pw.println("{");
+        pw.println("    return pdu.unmarshal(bytes, 0);");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int marshalPooledDirectBuffer() throws Exception");
+        pw.println("{");
+        pw.println("    ByteBuffer buff = bufferPool.marshal(pdu);");
+        pw.println("    int length = buff.limit();");
+        pw.println("    bufferPool.release(buff);");
+        pw.println("    return length;");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int unmarshalDirectByteBuffer() throws Exception");
+        pw.println("{");
+        pw.println("    directBuffer.clear();");
+        pw.println("    return pdu.unmarshal(directBuffer);");
+        pw.println("}");
+        pw.println();
+        pw.println("@Benchmark");
+        pw.println("public int getMarshalledSize()");
+        pw.println("{");
+        pw.println("    return pdu.getMarshalledSize();");
+        pw.println("}");
+        pw.println("} // end of class");
+    }
+}
@@ -8,10 +8,11 @@ import java.util.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
+import edu.nps.moves.dis7.source.generator.GeneratedFileManifest;
 import edu.nps.moves.dis7.source.generator.pdus.ClassAttribute.ClassAttributeType;
 
 
@@ -48,6 +49,24 @@ public class JavaGenerator extends Generator
      */
     Properties primitiveSizes = new Properties();
     Map<String,Integer> primitiveSizesMap = new HashMap<>();
+
+    /** Fixed-size analysis of the class descriptions, created on first use */
+    private MarshalledLayout marshalledLayout;
+
+    /** Hashes of the files written, shared with the companion generators, so unchanged files are left alone */
+    GeneratedFileManifest manifest;
+
+    /**
+     * Set system property xmlpg.internEntityTypes=true to unmarshal and reset EntityType fields to the shared immutable
+     * CanonicalEntityType instances rather than filling in the objects the fields hold
+     */
+    private final boolean internEntityTypes = Boolean.parseBoolean(System.getProperty("xmlpg.internEntityTypes"));
+
+    /**
+     * Set system property xmlpg.lazyObjectLists=true to have ByteBuffer unmarshal methods leave the records of counted
+     * object lists in the buffer, as a LazyObjectList that unmarshals an element only when it is first read
+     */
+    private final boolean lazyObjectLists = Boolean.parseBoolean(System.getProperty("xmlpg.lazyObjectLists"));
     
     /**
      * A property list that contains java-specific code generation information, such as package names, imports, etc.
@@ -151,6 +170,13 @@ public class JavaGenerator extends Generator
         primitiveSizesMap.put("float64", 8); 
     }
 
+    MarshalledLayout getMarshalledLayout()
+    {
+        if (marshalledLayout == null)
+            marshalledLayout = new MarshalledLayout(classDescriptions, primitiveSizesMap);
+        return marshalledLayout;
+    }
+
     /**
      * Generate the classes and write them to a directory
      */
@@ -162,6 +188,7 @@ public class JavaGenerator extends Generator
         readTemplates();  // get the license
         
         this.createDirectory();
+        manifest = GeneratedFileManifest.open("pdus", new File(getDirectory()));
 
         Iterator it = classDescriptions.values().iterator();
 
@@ -186,15 +213,15 @@ public class JavaGenerator extends Generator
                 }
                 //System.out.println("Creating Java source code file for " + fullPath);
 
-                // Create the new, empty file, and create printwriter object for output to it
+                // Render the class, then write the file only if its content changed
                 File outputFile = new File(fullPath);
-                outputFile.getParentFile().mkdirs();
-                outputFile.createNewFile();
-                PrintWriter pw = new PrintWriter(outputFile, StandardCharsets.UTF_8.name());
-
-                // print the source code of the class to the file
-                // System.out.println("trying to make class "+name);
-                this.writeClass(pw, aClass);
+                StringWriter text = new StringWriter();
+                try (PrintWriter pw = new PrintWriter(text)) {
+                    // print the source code of the class to the file
+                    // System.out.println("trying to make class "+name);
+                    this.writeClass(pw, aClass);
+                }
+                manifest.write(outputFile, text.toString());
                 classCount++;
             }
             catch (IOException e) {
@@ -206,6 +233,26 @@ public class JavaGenerator extends Generator
         
         System.out.println (JavaGenerator.class.getName() + " complete, " + classCount + " classes written.");
 
+        String pack = languageProperties.getProperty("package");
+        String packagePath = pack == null ? getDirectory() : getDirectory() + "/" + pack.replace(".", "/");
+
+        int decodedTypes = new JavaPduDecoderGenerator(this).writeDecoder(packagePath);
+        System.out.println (JavaPduDecoderGenerator.class.getName() + " complete, " + decodedTypes + " PDU types decoded.");
+        if (new JavaPduPoolGenerator(this).writePool(packagePath))
+            System.out.println (JavaPduPoolGenerator.class.getName() + " complete.");
+
+        if (Boolean.parseBoolean(System.getProperty("xmlpg.generateViews"))) {
+            int viewCount = new JavaViewGenerator(this).writeViews(packagePath);
+            System.out.println (JavaViewGenerator.class.getName() + " complete, " + viewCount + " flyweight views written.");
+        }
+
+        String benchmarkSourceDir = System.getProperty("xmlpg.benchmarkSourceDir");
+        if (benchmarkSourceDir != null) {
+            int benchmarkedClasses = new JavaBenchmarkGenerator(this).writeBenchmark(benchmarkSourceDir);
+            System.out.println (JavaBenchmarkGenerator.class.getName() + " complete, " + benchmarkedClasses + " PDU classes benchmarked.");
+        }
+        manifest.close();
+
     } // End write classes
 
     /**
@@ -238,8 +285,12 @@ public class JavaGenerator extends Generator
         pw.flush();
         writeConstructor(pw, aClass);
         pw.flush();
+        writeResetMethod(pw, aClass);
+        pw.flush();
         writeGetMarshalledSizeMethod(pw, aClass);
         pw.flush();
+        writeSkipMethods(pw, aClass);
+        pw.flush();
         writeGettersAndSetters(pw, aClass);
         pw.flush();
         writeBitflagMethods(pw, aClass);
@@ -252,6 +303,10 @@ public class JavaGenerator extends Generator
         pw.flush();
         writeUnmarshallMethodWithByteBuffer(pw, aClass);
         pw.flush();
+        writeMarshalMethodWithByteArray(pw, aClass);
+        pw.flush();
+        writeUnmarshallMethodWithByteArray(pw, aClass);
+        pw.flush();
 
         if (aClass.getName().equals("Pdu"))
             writeMarshalMethodToByteArray(pw, aClass);
@@ -259,6 +314,7 @@ public class JavaGenerator extends Generator
 
         //this.writeXmlMarshallMethod(pw, aClass);
         writeEqualityMethod(pw, aClass);
+        writeHashCodeMethod(pw, aClass);
 
         writeToStringMethod(pw, aClass);
         
@@ -462,7 +518,10 @@ public class JavaGenerator extends Generator
                     if (anAttribute.getComment() != null) {
                         pw.println("   /** " + anAttribute.getComment() + " */");
                     }
-                    if(anAttribute.getDefaultValue() == null)
+                    String interner = internerFor(anAttribute);
+                    if (interner != null && (anAttribute.getDefaultValue() == null || anAttribute.getDefaultValue().equals("new " + attributeType + "()")))
+                        pw.println("   " + fieldaccess + " " + attributeType + "  " + anAttribute.getName() + " = " + interner + ".DEFAULT; \n"); // as reset() leaves it
+                    else if(anAttribute.getDefaultValue() == null)
                         pw.println("   " + fieldaccess + " " + attributeType + "  " + anAttribute.getName() + " = new " + (initialClass == null ? attributeType : initialClass) + "(); \n");
                     else
                         pw.println("   " + fieldaccess + " " + attributeType + "  " + anAttribute.getName() + " =  " + anAttribute.getDefaultValue() + "; \n");
@@ -523,13 +582,13 @@ public class JavaGenerator extends Generator
                     break;
                     
                 case PADTO16:                
-                    pw.println("   private byte[] "+anAttribute.getName()+" = new byte[0]; // pad to 16-bit boundary\n");
+                    pw.println("   private int "+anAttribute.getName()+"; // number of pad bytes to 16-bit boundary\n");
                     break;
                 case PADTO32:
-                    pw.println("   private byte[] "+anAttribute.getName()+" = new byte[0]; // pad to 32-bit boundary\n");
+                    pw.println("   private int "+anAttribute.getName()+"; // number of pad bytes to 32-bit boundary\n");
                     break;
                 case PADTO64:
-                    pw.println("   private byte[] "+anAttribute.getName()+" = new byte[0]; // pad to 64-bit boundary\n");
+                    pw.println("   private int "+anAttribute.getName()+"; // number of pad bytes to 64-bit boundary\n");
                     break;
                     
             }
@@ -543,7 +602,17 @@ public class JavaGenerator extends Generator
         pw.println("/** Constructor */");
         pw.println(" public " + aClass.getName() + "()");
         pw.println(" {");
+        writeInitialValues(pw, aClass);
+        pw.println(" }");    
+    }
 
+    /**
+     * Write setter calls for the initial values of a class, as done by its constructor and reset method
+     * @param pw PrintWriter
+     * @param aClass class of interest 
+     */
+    private void writeInitialValues(PrintWriter pw, GeneratedClass aClass)
+    {
         // Set primitive types with initial values
         for (InitialValue anInit : aClass.getInitialValues()) {
 
@@ -580,12 +649,121 @@ public class JavaGenerator extends Generator
                     pw.println("    " + anInit.getSetterMethodName() + "( (" + types.getProperty(aType) + ")" + anInit.getVariableValue() + " );");
             }
         } // End initialize initial values
-        
-        pw.println(" }");    
+    }
+
+    /** The supporting class interning values of a class-typed attribute, or null if the attribute holds its own object */
+    private String internerFor(ClassAttribute anAttribute)
+    {
+        return internEntityTypes ? MarshalledLayout.INTERNED_CLASSES.get(anAttribute.getType()) : null;
+    }
+
+    private void writeResetMethod(PrintWriter pw, GeneratedClass aClass)
+    {
+        pw.println();
+        pw.println("/** Restores the values set at construction, reusing nested objects and list storage, so that a pooled");
+        pw.println("  * instance can be filled again. A nested object of a subtype chosen by the caller is reset, not replaced. */");
+        pw.println(" public void reset()");
+        pw.println(" {");
+        if (!aClass.getParentClass().equalsIgnoreCase("root"))
+            pw.println("    super.reset();");
+
+        for (ClassAttribute anAttribute : aClass.getClassAttributes()) {
+            if (anAttribute.shouldSerialize == false)
+                continue;
+            String name = anAttribute.getName();
+            String defaultValue = anAttribute.getDefaultValue();
+            String attributeType;
+
+            switch (anAttribute.getAttributeKind()) {
+                case PRIMITIVE:
+                    attributeType = types.getProperty(anAttribute.getType());
+                    pw.println("    " + name + " = (" + attributeType + ")" + (defaultValue == null ? "0" : defaultValue) + ";");
+                    break;
+
+                case CLASSREF:
+                case SISO_BITFIELD:
+                    if (internerFor(anAttribute) != null && (defaultValue == null || defaultValue.equals("new " + anAttribute.getType() + "()")))
+                        pw.println("    " + name + " = " + internerFor(anAttribute) + ".DEFAULT;");
+                    else if (defaultValue == null || defaultValue.startsWith("new "))
+                        pw.println("    " + name + ".reset();");
+                    else
+                        pw.println("    " + name + " = " + defaultValue + ";");
+                    break;
+
+                case SISO_ENUM:
+                    pw.println("    " + name + " = " + (defaultValue == null ? anAttribute.getType() + ".values()[0]" : defaultValue) + ";");
+                    break;
+
+                case PRIMITIVE_LIST:
+                    attributeType = types.getProperty(anAttribute.getType());
+                    pw.println("    if(" + name + ".length == " + anAttribute.getListLength() + ")");
+                    pw.println("        Arrays.fill(" + name + ", (" + attributeType + ")0);");
+                    pw.println("    else");
+                    pw.println("        " + name + " = new " + attributeType + "[" + anAttribute.getListLength() + "];");
+                    break;
+
+                case OBJECT_LIST:
+                    pw.println("    " + name + ".clear();");
+                    break;
+
+                case PADTO16:
+                case PADTO32:
+                case PADTO64:
+                    pw.println("    " + name + " = 0;");
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        writeInitialValues(pw, aClass);
+        pw.println(" }");
+    }
+
+    /**
+     * Whether an object list is unmarshalled from a ByteBuffer as a LazyObjectList: its elements must be generated
+     * records that can be stepped over without unmarshalling, counted by a field before the list
+     */
+    private boolean isLazyList(GeneratedClass aClass, ClassAttribute anAttribute)
+    {
+        if (!lazyObjectLists || anAttribute.getAttributeKind() != ClassAttributeType.OBJECT_LIST || anAttribute.getUnderlyingTypeIsEnum()
+                || anAttribute.getUnderlyingTypeIsBitfield() || marshalTypes.getProperty(anAttribute.getType()) != null)
+            return false;
+        MarshalledLayout layout = getMarshalledLayout();
+        List<ClassAttribute> attributes = layout.flattenedAttributes(aClass);
+        return layout.attributeState(anAttribute, attributes.subList(0, attributes.indexOf(anAttribute))) != MarshalledLayout.State.OPAQUE;
+    }
+
+    /** Element count of a list as a non-negative int; uint8 and uint16 counts are held in signed fields */
+    private String unsignedCount(GeneratedClass aClass, ClassAttribute list)
+    {
+        MarshalledLayout layout = getMarshalledLayout();
+        List<ClassAttribute> attributes = layout.flattenedAttributes(aClass);
+        ClassAttribute count = layout.countField(list, attributes.subList(0, attributes.indexOf(list)));
+        if (count == null)
+            return list.getCountFieldName();
+        switch (count.getType()) {
+            case "uint8":
+                return "(" + count.getName() + " & 0xFF)";
+            case "uint16":
+                return "(" + count.getName() + " & 0xFFFF)";
+            default:
+                return "(int)" + count.getName();
+        }
     }
     
     public void writeGetMarshalledSizeMethod(PrintWriter pw, GeneratedClass aClass)
     {
+        MarshalledLayout layout = getMarshalledLayout();
+        boolean constantSize = layout.hasConstantSize(aClass);
+
+        // Classes whose every instance has the same size get it as a compile-time constant
+        if (constantSize) {
+            pw.println();
+            pw.println("   /** Marshalled size in bytes, the same for every " + aClass.getName() + " */");
+            pw.println("   public static final int MARSHALLED_SIZE = " + layout.sizeExpression(layout.flattenedAttributes(aClass), "") + ";");
+        }
+
         // Create a getMarshalledSize() method
         pw.println();
         // Not all object are setup to implement Marshaller; should be done
@@ -598,6 +776,12 @@ public class JavaGenerator extends Generator
 "   */");
         pw.println("public int getMarshalledSize()");
         pw.println("{");
+        if (constantSize) {
+            pw.println("   return MARSHALLED_SIZE;");
+            pw.println("}");
+            pw.println();
+            return;
+        }
         pw.println("   int marshalSize = 0; ");
         pw.println();
 
@@ -613,10 +797,16 @@ public class JavaGenerator extends Generator
                     pw.println(primitiveSizes.get(anAttribute.getType()) + ";  // " + anAttribute.getName());
                     break;
                 case CLASSREF:
+                    pw.print("   marshalSize += ");
+                    if (MarshalledLayout.FIXED_SUPPORT_CLASSES.contains(anAttribute.getType()) || layout.hasConstantSize(classDescriptions.get(anAttribute.getType())))
+                        pw.println(anAttribute.getType() + ".MARSHALLED_SIZE;  // " + anAttribute.getName());
+                    else
+                        pw.println(anAttribute.getName() + ".getMarshalledSize();");
+                    break;
                 case SISO_ENUM:
                 case SISO_BITFIELD:
                     pw.print("   marshalSize += ");
-                    pw.println(anAttribute.getName() + ".getMarshalledSize();");
+                    pw.println(anAttribute.getType() + ".MARSHALLED_SIZE;  // " + anAttribute.getName());
                     break;
                 case PRIMITIVE_LIST:
                     //System.out.println("Generating fixed list for " + anAttribute.getName() + " listIsClass:" + anAttribute.listIsClass());
@@ -625,6 +815,10 @@ public class JavaGenerator extends Generator
                     pw.println("   marshalSize += " + anAttribute.getName()+".length * "  + primitiveSizes.get(anAttribute.getType()) + ";");
                     break;
                 case OBJECT_LIST:
+                    if (isLazyList(aClass, anAttribute)) {
+                        pw.println("   marshalSize += LazyObjectList.marshalledSize(" + anAttribute.getName() + ", " + anAttribute.getType() + "::getMarshalledSize);");
+                        break;
+                    }
                     // If this is a dynamic list of primitives, it's the list size times the size of the primitive.
                     pw.println("   for(int idx=0; idx < " + anAttribute.getName() + ".size(); idx++)");
                     pw.println("   {");
@@ -636,7 +830,8 @@ public class JavaGenerator extends Generator
                 case PADTO16:
                 case PADTO32:
                 case PADTO64:
-                    pw.println("   marshalSize += "+anAttribute.getName()+".length;");
+                    // The pad field is only filled in by marshal/unmarshal, so work it out from the size so far
+                    pw.println("   marshalSize += Align.padding(marshalSize, " + padBoundary(anAttribute) + ");  // " + anAttribute.getName());
                     break;
             }          
         }
@@ -646,6 +841,179 @@ public class JavaGenerator extends Generator
         pw.println("}");
         pw.println();
     }
+
+    /**
+     * Static methods that find fields of a marshalled instance in a ByteBuffer without unmarshalling anything:
+     * skip(buff, offset) returns the index just past the record, offsetOfXxx(buff, offset) the index of a field the
+     * class declares.  Fields after variable-length content are located by reading the count fields and stepping over
+     * the lists in between, so finding one costs work in proportion to the variable-length fields before it.
+     * Inherited fields are located by the superclass methods, which take the same record offset.
+     */
+    private void writeSkipMethods(PrintWriter pw, GeneratedClass aClass)
+    {
+        MarshalledLayout layout = getMarshalledLayout();
+        if (layout.isHandwritten(aClass))
+            return;
+
+        List<ClassAttribute> attributes = layout.flattenedAttributes(aClass);
+        // Offset of the next field: anchor expression plus constant bytes plus symbolic fixed sizes
+        String anchor = "offset";
+        int constant = 0;
+        List<String> terms = new ArrayList<>();
+        boolean opaque = false;
+
+        for (int i = 0; i < attributes.size(); i++) {
+            ClassAttribute anAttribute = attributes.get(i);
+            if (!layout.isSerialized(anAttribute))
+                continue;
+            List<ClassAttribute> preceding = attributes.subList(0, i);
+            boolean declared = layout.ownerOf(anAttribute) == aClass;
+            String capped = initialCap(anAttribute.getName());
+
+            if (declared) {
+                pw.println("   /** Absolute index of " + anAttribute.getName() + " in a " + aClass.getName() + " marshalled at offset */");
+                pw.println("public static int offsetOf" + capped + "(java.nio.ByteBuffer buff, int offset)");
+                pw.println("{");
+                pw.println("   return " + MarshalledLayout.expression(anchor, constant, terms) + ";");
+                pw.println("}");
+                pw.println();
+            }
+
+            MarshalledLayout.State attState = layout.attributeState(anAttribute, preceding);
+            if (attState == MarshalledLayout.State.OPAQUE) {
+                if (declared) {
+                    pw.println("// " + anAttribute.getName() + " and any fields after it have no size derivable from the XML layout");
+                    pw.println();
+                }
+                opaque = true;
+                break;
+            }
+
+            if (attState == MarshalledLayout.State.FIXED && hasSizeConstant(anAttribute)) {
+                constant += layout.fixedConstant(anAttribute);
+                String term = layout.fixedTerm(anAttribute, "");
+                if (term != null)
+                    terms.add(term);
+            }
+            else {
+                if (declared)
+                    writeEndOfMethod(pw, anAttribute, preceding);
+                anchor = staticQualifier(aClass, anAttribute) + "endOf" + capped + "(buff, offset)";
+                constant = 0;
+                terms.clear();
+            }
+        }
+
+        pw.println("  /**");
+        pw.println("   * Locates the end of a marshalled " + aClass.getName() + " without unmarshalling it");
+        pw.println("   * @param buff buffer holding the marshalled data");
+        pw.println("   * @param offset absolute index in buff of the first byte");
+        pw.println("   * @return absolute index just past the record");
+        pw.println("   */");
+        pw.println("public static int skip(java.nio.ByteBuffer buff, int offset)");
+        pw.println("{");
+        if (opaque)
+            pw.println("   throw new UnsupportedOperationException(\"" + aClass.getName() + " has a field whose size cannot be derived from the XML layout\");");
+        else if (layout.hasConstantSize(aClass))
+            pw.println("   return offset + MARSHALLED_SIZE;");
+        else
+            pw.println("   return " + MarshalledLayout.expression(anchor, constant, terms) + ";");
+        pw.println("}");
+        pw.println();
+    }
+
+    /** Whether a fixed-layout field's size is a compile-time constant of the generated classes */
+    private boolean hasSizeConstant(ClassAttribute anAttribute)
+    {
+        if (anAttribute.getAttributeKind() != ClassAttributeType.CLASSREF || MarshalledLayout.FIXED_SUPPORT_CLASSES.contains(anAttribute.getType()))
+            return true;
+        return getMarshalledLayout().hasConstantSize(classDescriptions.get(anAttribute.getType()));
+    }
+
+    /** Qualifies static locator calls for fields of a superclass, since a subclass field of the same name hides them */
+    private String staticQualifier(GeneratedClass aClass, ClassAttribute anAttribute)
+    {
+        GeneratedClass owner = getMarshalledLayout().ownerOf(anAttribute);
+        return owner == aClass ? "" : owner.getName() + ".";
+    }
+
+    /** Static method returning the index just past a variable-length field, the anchor for the fields after it */
+    private void writeEndOfMethod(PrintWriter pw, ClassAttribute anAttribute, List<ClassAttribute> preceding)
+    {
+        MarshalledLayout layout = getMarshalledLayout();
+        String capped = initialCap(anAttribute.getName());
+        String type = anAttribute.getType();
+        String offset = "offsetOf" + capped + "(buff, offset)";
+
+        pw.println("protected static int endOf" + capped + "(java.nio.ByteBuffer buff, int offset)");
+        pw.println("{");
+        switch (anAttribute.getAttributeKind()) {
+            case CLASSREF:
+                pw.println("   return " + type + ".skip(buff, " + offset + ");");
+                break;
+
+            case PRIMITIVE_LIST:
+                pw.println("   return " + offset + " + " + countExpression(anAttribute, preceding) + " * " + primitiveSizesMap.get(type) + ";");
+                break;
+
+            case OBJECT_LIST:
+                if (primitiveSizesMap.containsKey(type))
+                    pw.println("   return " + offset + " + " + countExpression(anAttribute, preceding) + " * " + primitiveSizesMap.get(type) + ";");
+                else if (anAttribute.getUnderlyingTypeIsEnum() || anAttribute.getUnderlyingTypeIsBitfield() || layout.hasConstantSize(classDescriptions.get(type)))
+                    pw.println("   return " + offset + " + " + countExpression(anAttribute, preceding) + " * " + type + ".MARSHALLED_SIZE;");
+                else {
+                    pw.println("   int pos = " + offset + ";");
+                    pw.println("   for (int i = " + countExpression(anAttribute, preceding) + "; i > 0; i--)");
+                    pw.println("       pos = " + type + ".skip(buff, pos);");
+                    pw.println("   return pos;");
+                }
+                break;
+
+            case PADTO16:
+            case PADTO32:
+            case PADTO64:
+                pw.println("   int pos = " + offset + ";");
+                pw.println("   return pos + Align.padding(pos, " + padBoundary(anAttribute) + ");");
+                break;
+
+            default:
+                break;
+        }
+        pw.println("}");
+        pw.println();
+    }
+
+    /** Element count of a list read from the buffer; count fields are unsigned on the wire */
+    private String countExpression(ClassAttribute list, List<ClassAttribute> preceding)
+    {
+        ClassAttribute count = getMarshalledLayout().countField(list, preceding);
+        // The count field precedes the list, so its declaring class is already known to the layout
+        String offset = "offsetOf" + initialCap(count.getName()) + "(buff, offset)";
+        GeneratedClass owner = getMarshalledLayout().ownerOf(count);
+        if (owner != getMarshalledLayout().ownerOf(list))
+            offset = owner.getName() + "." + offset;
+        switch (count.getType()) {
+            case "uint8":
+                return "(buff.get(" + offset + ") & 0xFF)";
+            case "uint16":
+                return "(buff.getShort(" + offset + ") & 0xFFFF)";
+            default:
+                String capped = initialCap(marshalTypes.getProperty(count.getType()));
+                return "(int)buff.get" + (capped.equals("Byte") ? "" : capped) + "(" + offset + ")";
+        }
+    }
+
+    private int padBoundary(ClassAttribute anAttribute)
+    {
+        switch (anAttribute.getAttributeKind()) {
+            case PADTO16:
+                return 2;
+            case PADTO32:
+                return 4;
+            default:
+                return 8;
+        }
+    }
  
     private void writeGettersAndSetters(PrintWriter pw, GeneratedClass aClass)
     {
@@ -964,12 +1332,17 @@ public class JavaGenerator extends Generator
                 // Write out the method call to marshal a fixed length list, aka an array.
                 case PRIMITIVE_LIST:
                     pw.println();
-                    pw.println("       for(int idx = 0; idx < " + anAttribute.getName() + ".length; idx++)");
-
                     marshalType = marshalTypes.getProperty(anAttribute.getType());
 
-                    capped = this.initialCap(marshalType);
-                    pw.println("           dos.write" + capped + "(" + anAttribute.getName() + "[idx]);");
+                    // Byte arrays go out in one write; DataOutputStream has no bulk write for wider types
+                    if (marshalType.equals("byte")) {
+                        pw.println("       dos.write(" + anAttribute.getName() + ");");
+                    }
+                    else {
+                        pw.println("       for(int idx = 0; idx < " + anAttribute.getName() + ".length; idx++)");
+                        capped = this.initialCap(marshalType);
+                        pw.println("           dos.write" + capped + "(" + anAttribute.getName() + "[idx]);");
+                    }
 
                     pw.println();
                     break;
@@ -996,13 +1369,13 @@ public class JavaGenerator extends Generator
                     break;
                 
                 case PADTO16:
-                    pw.println("       "+anAttribute.getName()+" = new byte[Align.to16bits(dos)];");
+                    pw.println("       "+anAttribute.getName()+" = Align.to16bits(dos);");
                     break;
                 case PADTO32:
-                    pw.println("       "+anAttribute.getName()+" = new byte[Align.to32bits(dos)];");
+                    pw.println("       "+anAttribute.getName()+" = Align.to32bits(dos);");
                     break;
                 case PADTO64:
-                    pw.println("       "+anAttribute.getName()+" = new byte[Align.to64bits(dos)];");
+                    pw.println("       "+anAttribute.getName()+" = Align.to64bits(dos);");
                     break;
                     
             }
@@ -1032,8 +1405,11 @@ public class JavaGenerator extends Generator
         pw.flush();
         pw.println("    int uPosition = 0;");
         
-        if (!(aClass.getParentClass().equalsIgnoreCase("root")))
-            pw.println("    uPosition += super.unmarshal(dis);\n");
+        if (!(aClass.getParentClass().equalsIgnoreCase("root"))) {
+            // super.unmarshal returns the size of the whole object, so only the superclass part is counted
+            pw.println("    super.unmarshal(dis);");
+            pw.println("    uPosition += super.getMarshalledSize();\n");
+        }
 
         pw.println("    try \n    {");
 
@@ -1076,12 +1452,19 @@ public class JavaGenerator extends Generator
                     
                 case SISO_BITFIELD:
                 case CLASSREF:           
-                    pw.println("        uPosition += " + attributeName + ".unmarshal(dis);");
+                    if (MarshalledLayout.SHARED_VALUE_CLASSES.contains(anAttribute.getType())) {
+                        pw.println("        " + attributeName + " = " + attributeName + ".read(dis);");
+                        pw.println("        uPosition += " + anAttribute.getType() + ".MARSHALLED_SIZE;");
+                    }
+                    else if (internerFor(anAttribute) != null) {
+                        pw.println("        " + attributeName + " = " + internerFor(anAttribute) + ".read(dis);");
+                        pw.println("        uPosition += " + anAttribute.getType() + ".MARSHALLED_SIZE;");
+                    }
+                    else
+                        pw.println("        uPosition += " + attributeName + ".unmarshal(dis);");
                     break;
                     
                 case PRIMITIVE_LIST:
-                    pw.println("        for(int idx = 0; idx < " + attributeName + ".length; idx++)");
-
                     // This is some sleaze. We're an array, but an array of what? We could be either a
                     // primitive or a class. We need to figure out which. This is done via the expedient
                     // but not very reliable way of trying to do a lookup on the type. If we don't find
@@ -1089,12 +1472,24 @@ public class JavaGenerator extends Generator
                     marshalType = marshalTypes.getProperty(anAttribute.getType());
 
                     if (marshalType == null) { // It's a class
+                        pw.println("        for(int idx = 0; idx < " + attributeName + ".length; idx++)");
                         pw.println("            uPosition += " + attributeName + "[idx].unmarshal(dis);");
                     }
                     else { // It's a primitive
+                        if (anAttribute.getCountFieldName() != null) {
+                            String count = unsignedCount(aClass, anAttribute);
+                            pw.println("        if(" + attributeName + ".length != " + count + ")");
+                            pw.println("            " + attributeName + " = new " + types.getProperty(anAttribute.getType()) + "[" + count + "];");
+                        }
                         int primitiveByteSize = primitiveSizesMap.get(anAttribute.getType());
-                        capped = this.initialCap(marshalType);
-                        pw.println("            " + anAttribute.getName() + "[idx] = dis.read" + capped + "();");
+                        if (marshalType.equals("byte")) {
+                            pw.println("        dis.readFully(" + attributeName + ");");
+                        }
+                        else {
+                            capped = this.initialCap(marshalType);
+                            pw.println("        for(int idx = 0; idx < " + attributeName + ".length; idx++)");
+                            pw.println("            " + attributeName + "[idx] = dis.read" + capped + "();");
+                        }
                         pw.println("        uPosition += ("+attributeName + ".length * "+primitiveByteSize+");");
                     }
                     break;
@@ -1117,7 +1512,10 @@ public class JavaGenerator extends Generator
 
                         if (marshalType == null) { // It's a class
                             pw.println("            " + anAttribute.getType() + " anX = new " + anAttribute.getType() + "();");
-                            pw.println("            uPosition += anX.unmarshal(dis);");
+                            if (MarshalledLayout.STREAM_POSITION_CLASSES.contains(anAttribute.getType()))
+                                pw.println("            uPosition += anX.unmarshal(uPosition, dis);");
+                            else
+                                pw.println("            uPosition += anX.unmarshal(dis);");
                             pw.println("            " + anAttribute.getName() + ".add(anX);");
                         }
                         else  { // It's a primitive
@@ -1131,16 +1529,16 @@ public class JavaGenerator extends Generator
                     break;
                     
                 case PADTO16:
-                    pw.println("        "+anAttribute.getName() + " = new byte[Align.from16bits(uPosition,dis)];");
-                    pw.println("        uPosition += " + anAttribute.getName() + ".length;");
+                    pw.println("        "+anAttribute.getName() + " = Align.from16bits(uPosition,dis);");
+                    pw.println("        uPosition += " + anAttribute.getName() + ";");
                     break;
                 case PADTO32:
-                    pw.println("        "+anAttribute.getName() + " = new byte[Align.from32bits(uPosition,dis)];");
-                    pw.println("        uPosition += " + anAttribute.getName() + ".length;");
+                    pw.println("        "+anAttribute.getName() + " = Align.from32bits(uPosition,dis);");
+                    pw.println("        uPosition += " + anAttribute.getName() + ";");
                     break;
                 case PADTO64:
-                    pw.println("        "+anAttribute.getName() + " = new byte[Align.from64bits(uPosition,dis)];");
-                    pw.println("        uPosition += " + anAttribute.getName() + ".length;");
+                    pw.println("        "+anAttribute.getName() + " = Align.from64bits(uPosition,dis);");
+                    pw.println("        uPosition += " + anAttribute.getName() + ";");
                     break;                   
             }
         } // End of loop through ivars for writing the unmarshal method
@@ -1210,7 +1608,6 @@ public class JavaGenerator extends Generator
                     
                 case PRIMITIVE_LIST:
                     pw.println();
-                    pw.println("   for(int idx = 0; idx < " + anAttribute.getName() + ".length; idx++)");
 
                     // This is some sleaze. We're an array, but an array of what? We could be either a
                     // primitive or a class. We need to figure out which. This is done via the expedient
@@ -1220,14 +1617,11 @@ public class JavaGenerator extends Generator
                     marshalType = marshalTypes.getProperty(anAttribute.getType());
 
                     if(anAttribute.getUnderlyingTypeIsPrimitive())
-                    {
-                        capped = this.initialCap(marshalType);
-                        if( capped.equals("Byte") )
-                            capped = "";    // ByteBuffer just has put() for bytesf
-                        pw.println("       buff.put" + capped + "((" + marshalType + ")" + anAttribute.getName() + "[idx]);");
-                    }
-                    else
+                        writeBulkTransfer(pw, anAttribute, "put");
+                    else {
+                        pw.println("   for(int idx = 0; idx < " + anAttribute.getName() + ".length; idx++)");
                         pw.println("       " + anAttribute.getName() + "[idx].marshal(buff);" ); //"[idx].marshal(dos);" )
+                    }
 
                     pw.println();
                     break;
@@ -1264,13 +1658,13 @@ public class JavaGenerator extends Generator
                     break;
                                   
                 case PADTO16:
-                    pw.println("   "+anAttribute.getName()+" = new byte[Align.to16bits(buff)];");
+                    pw.println("   "+anAttribute.getName()+" = Align.to16bits(buff);");
                     break;
                 case PADTO32:
-                    pw.println("   "+anAttribute.getName()+" = new byte[Align.to32bits(buff)];");
+                    pw.println("   "+anAttribute.getName()+" = Align.to32bits(buff);");
                     break;
                 case PADTO64:
-                    pw.println("   "+anAttribute.getName()+" = new byte[Align.to64bits(buff)];");
+                    pw.println("   "+anAttribute.getName()+" = Align.to64bits(buff);");
                     break;
             }   
         } // End of loop through the ivars for a marshal method
@@ -1326,43 +1720,61 @@ public class JavaGenerator extends Generator
                     
                 case SISO_BITFIELD:
                 case CLASSREF:         
-                    pw.println("    " + anAttribute.getName() + ".unmarshal(buff);" );
+                    if (MarshalledLayout.SHARED_VALUE_CLASSES.contains(anAttribute.getType()))
+                        pw.println("    " + anAttribute.getName() + " = " + anAttribute.getName() + ".read(buff);");
+                    else if (internerFor(anAttribute) != null)
+                        pw.println("    " + anAttribute.getName() + " = " + internerFor(anAttribute) + ".read(buff);");
+                    else
+                        pw.println("    " + anAttribute.getName() + ".unmarshal(buff);" );
                     break;
 
                 case PRIMITIVE_LIST:
-                    pw.println("    for(int idx = 0; idx < " + anAttribute.getName() + ".length; idx++)");
-
+                    if(anAttribute.getCountFieldName() != null) {
+                        String count = unsignedCount(aClass, anAttribute);
+                        pw.println("    if(" + anAttribute.getName() + ".length != " + count + ")");
+                        pw.println("        " + anAttribute.getName() + " = new " + types.getProperty(anAttribute.getType()) + "[" + count + "];");
+                    }
                     marshalType = marshalTypes.getProperty(anAttribute.getType());
 
-                    if(marshalType == null) // It's a class  // should be unnecessary w/ refactor
+                    if(marshalType == null) { // It's a class  // should be unnecessary w/ refactor
+                        pw.println("    for(int idx = 0; idx < " + anAttribute.getName() + ".length; idx++)");
                         pw.println("        " + anAttribute.getName() + "[idx].unmarshal(buff);" );
-                    else { // It's a primitive
-                        capped = this.initialCap(marshalType);
-                        if( capped.equals("Byte") )
-                             capped = "";
-                        pw.println("        " +  anAttribute.getName() + "[idx] = buff.get" + capped + "();");
                     }
+                    else // It's a primitive
+                        writeBulkTransfer(pw, anAttribute, "get");
                     break;
                     
                 case OBJECT_LIST:
-                    if(anAttribute.getCountFieldName() != null)
-                        pw.println("    for(int idx = 0; idx < " + anAttribute.getCountFieldName() + "; idx++)");
-                    else
-                        pw.println("    for(int idx = 0; idx < " + anAttribute.getName() + ".size(); idx++)");
-                
+                    if (isLazyList(aClass, anAttribute)) {
+                        String type = anAttribute.getType();
+                        String extent = getMarshalledLayout().hasConstantSize(classDescriptions.get(type)) ? type + ".MARSHALLED_SIZE" : type + "::skip";
+                        pw.println("    " + anAttribute.getName() + " = LazyObjectList.read(" + anAttribute.getName() + ", buff, " + unsignedCount(aClass, anAttribute) + ", "
+                                   + extent + ", " + type + "::new, " + type + "::unmarshal);");
+                        pw.println();
+                        break;
+                    }
+                    // Elements already in the list are refilled in place; the list only grows when the count does
+                    String listCount = anAttribute.getCountFieldName() != null ? unsignedCount(aClass, anAttribute) : anAttribute.getName() + ".size()";
+                    pw.println("    for(int idx = 0; idx < " + listCount + "; idx++)");
                     pw.println("    {");
 
                     if(anAttribute.getUnderlyingTypeIsEnum()) {
                         pw.println("    " +anAttribute.getType() + " anX = "+anAttribute.getType() + ".unmarshalEnum(buff);");
-                        pw.println("    " + anAttribute.getName() + ".add(anX);");
+                        pw.println("    if(idx < " + anAttribute.getName() + ".size())");
+                        pw.println("        " + anAttribute.getName() + ".set(idx, anX);");
+                        pw.println("    else");
+                        pw.println("        " + anAttribute.getName() + ".add(anX);");
                     }
                     else {
                         marshalType = marshalTypes.getProperty(anAttribute.getType());
 
                         if(marshalType == null) { // It's a class
-                            pw.println("    " + anAttribute.getType() + " anX = new " + anAttribute.getType() + "();");                           
+                            pw.println("    " + anAttribute.getType() + " anX;");
+                            pw.println("    if(idx < " + anAttribute.getName() + ".size())");
+                            pw.println("        anX = " + anAttribute.getName() + ".get(idx);");
+                            pw.println("    else");
+                            pw.println("        " + anAttribute.getName() + ".add(anX = new " + anAttribute.getType() + "());");
                             pw.println("    anX.unmarshal(buff);");
-                            pw.println("    " + anAttribute.getName() + ".add(anX);");
                         }
                         else { // It's a primitive  // should be unnecessary now w/ refactor
                             capped = this.initialCap(marshalType);
@@ -1372,18 +1784,22 @@ public class JavaGenerator extends Generator
                         }
                     }
                     pw.println("    }");
+                    if(anAttribute.getCountFieldName() != null) {
+                        pw.println("    if(" + anAttribute.getName() + ".size() > " + listCount + ")");
+                        pw.println("        " + anAttribute.getName() + ".subList(" + listCount + ", " + anAttribute.getName() + ".size()).clear();");
+                    }
                     pw.println();
                     break;
                     
                                     
                 case PADTO16:
-                    pw.println("    "+anAttribute.getName() + " = new byte[Align.from16bits(buff)];");
+                    pw.println("    "+anAttribute.getName() + " = Align.from16bits(buff);");
                     break;
                 case PADTO32:
-                    pw.println("    "+anAttribute.getName() + " = new byte[Align.from32bits(buff)];");
+                    pw.println("    "+anAttribute.getName() + " = Align.from32bits(buff);");
                     break;
                 case PADTO64:
-                    pw.println("    "+anAttribute.getName() + " = new byte[Align.from64bits(buff)];");
+                    pw.println("    "+anAttribute.getName() + " = Align.from64bits(buff);");
                     break;
             }
 
@@ -1392,6 +1808,288 @@ public class JavaGenerator extends Generator
         pw.println("}\n");
     }
 
+    /** Whether a type marshals itself to a byte array, as bitfields do, rather than being a generated record with marshalFields */
+    private boolean marshalsItself(String type)
+    {
+        return !classDescriptions.containsKey(type) || MarshalledLayout.FIXED_SUPPORT_CLASSES.contains(type);
+    }
+
+    /** Statement advancing pos past a primitive of the given XML type */
+    private String advance(String type)
+    {
+        return "pos += " + primitiveSizesMap.get(type) + ";";
+    }
+
+    /**
+     * Generate the byte array codec: marshal(byte[], int), which checks the bounds of the whole marshalled object
+     * once and then writes every field at an index in network byte order through BigEndianBytes, and
+     * marshalFields(byte[], int), which nested records and subclasses call without checking again.
+     */
+    private void writeMarshalMethodWithByteArray(PrintWriter pw, GeneratedClass aClass)
+    {
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Packs this object into a byte array in network byte order, without a ByteBuffer. The bounds of the whole");
+        pw.println(" * marshalled object are checked once, before anything is written.");
+        pw.println(" * @param dst array to write into");
+        pw.println(" * @param offset index of the first byte to write");
+        pw.println(" * @return index just past the last byte written");
+        pw.println(" * @throws IndexOutOfBoundsException if the marshalled object does not fit in dst at offset");
+        pw.println(" */");
+        pw.println("public int marshal(byte[] dst, int offset)");
+        pw.println("{");
+        pw.println("    BigEndianBytes.checkBounds(dst, offset, getMarshalledSize());");
+        pw.println("    return marshalFields(dst, offset);");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Packs the fields into a byte array without checking its bounds first; see {@link #marshal(byte[], int)}");
+        pw.println(" * @param dst array to write into");
+        pw.println(" * @param offset index of the first byte to write");
+        pw.println(" * @return index just past the last byte written");
+        pw.println(" */");
+        pw.println("protected int marshalFields(byte[] dst, int offset)");
+        pw.println("{");
+        if (aClass.getParentClass().equalsIgnoreCase("root"))
+            pw.println("    int pos = offset;");
+        else
+            pw.println("    int pos = super.marshalFields(dst, offset);");
+
+        for (ClassAttribute anAttribute : aClass.getClassAttributes()) {
+            if (anAttribute.shouldSerialize == false) {
+                pw.println("    // attribute " + anAttribute.getName() + " marked as not serialized");
+                continue;
+            }
+            String name = anAttribute.getName();
+            String type = anAttribute.getType();
+            String marshalType = type == null ? null : marshalTypes.getProperty(type);
+
+            switch (anAttribute.getAttributeKind()) {
+                case PRIMITIVE:
+                    String value = name;
+                    if (anAttribute.getIsDynamicListLengthField())
+                        value = anAttribute.getDynamicListClassAttribute().getName() + ".size()";
+                    else if (anAttribute.getIsPrimitiveListLengthField())
+                        value = anAttribute.getDynamicListClassAttribute().getName() + ".length";
+                    if (marshalType.equals("byte"))
+                        pw.println("    dst[pos] = (byte)" + value + ";");
+                    else
+                        pw.println("    BigEndianBytes.put" + initialCap(marshalType) + "(dst, pos, (" + marshalType + ")" + value + ");");
+                    pw.println("    " + advance(type));
+                    break;
+
+                case SISO_ENUM:
+                    pw.println("    pos = " + name + ".marshal(dst, pos);");
+                    break;
+
+                case SISO_BITFIELD:
+                case CLASSREF:
+                    pw.println("    pos = " + name + (marshalsItself(type) ? ".marshal" : ".marshalFields") + "(dst, pos);");
+                    break;
+
+                case PRIMITIVE_LIST:
+                    if (marshalType == null) { // It's a class
+                        pw.println("    for(int idx = 0; idx < " + name + ".length; idx++)");
+                        pw.println("        pos = " + name + "[idx].marshalFields(dst, pos);");
+                    }
+                    else if (marshalType.equals("byte")) {
+                        pw.println("    System.arraycopy(" + name + ", 0, dst, pos, " + name + ".length);");
+                        pw.println("    pos += " + name + ".length;");
+                    }
+                    else {
+                        pw.println("    for(int idx = 0; idx < " + name + ".length; idx++, " + advance(type).replace(";", ")"));
+                        pw.println("        BigEndianBytes.put" + initialCap(marshalType) + "(dst, pos, " + name + "[idx]);");
+                    }
+                    break;
+
+                case OBJECT_LIST:
+                    pw.println("    for(int idx = 0; idx < " + name + ".size(); idx++)");
+                    pw.println("        pos = " + name + ".get(idx)" + (anAttribute.getUnderlyingTypeIsEnum() || marshalsItself(type) ? ".marshal" : ".marshalFields") + "(dst, pos);");
+                    break;
+
+                case PADTO16:
+                    pw.println("    " + name + " = Align.to16bits(dst, pos);");
+                    pw.println("    pos += " + name + ";");
+                    break;
+                case PADTO32:
+                    pw.println("    " + name + " = Align.to32bits(dst, pos);");
+                    pw.println("    pos += " + name + ";");
+                    break;
+                case PADTO64:
+                    pw.println("    " + name + " = Align.to64bits(dst, pos);");
+                    pw.println("    pos += " + name + ";");
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        pw.println("    return pos;");
+        pw.println("}");
+    }
+
+    /**
+     * Generate unmarshal(byte[], int), reading every field at an index in network byte order through BigEndianBytes,
+     * and unmarshalFields(byte[], int) for nested records and subclasses.  Only a record of constant size can have
+     * its bounds checked before reading; others rely on the array's own checks.
+     */
+    private void writeUnmarshallMethodWithByteArray(PrintWriter pw, GeneratedClass aClass)
+    {
+        boolean constantSize = getMarshalledLayout().hasConstantSize(aClass);
+
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Unpacks this object from a byte array in network byte order, without a ByteBuffer." + (constantSize ? " The bounds of the whole" : ""));
+        if (constantSize)
+            pw.println(" * marshalled object are checked once, before anything is read.");
+        pw.println(" * @param src array holding the marshalled data");
+        pw.println(" * @param offset index of the first byte to read");
+        pw.println(" * @return index just past the last byte read");
+        pw.println(" * @throws IndexOutOfBoundsException if src ends before the marshalled object does");
+        pw.println(" */");
+        pw.println("public int unmarshal(byte[] src, int offset)");
+        pw.println("{");
+        if (constantSize)
+            pw.println("    BigEndianBytes.checkBounds(src, offset, MARSHALLED_SIZE);");
+        pw.println("    return unmarshalFields(src, offset);");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Unpacks the fields from a byte array; see {@link #unmarshal(byte[], int)}");
+        pw.println(" * @param src array holding the marshalled data");
+        pw.println(" * @param offset index of the first byte to read");
+        pw.println(" * @return index just past the last byte read");
+        pw.println(" */");
+        pw.println("protected int unmarshalFields(byte[] src, int offset)");
+        pw.println("{");
+        if (aClass.getParentClass().equalsIgnoreCase("root"))
+            pw.println("    int pos = offset;");
+        else
+            pw.println("    int pos = super.unmarshalFields(src, offset);");
+
+        for (ClassAttribute anAttribute : aClass.getClassAttributes()) {
+            if (anAttribute.shouldSerialize == false) {
+                pw.println("    // attribute " + anAttribute.getName() + " marked as not serialized");
+                continue;
+            }
+            String name = anAttribute.getName();
+            String type = anAttribute.getType();
+            String marshalType = type == null ? null : marshalTypes.getProperty(type);
+
+            switch (anAttribute.getAttributeKind()) {
+                case PRIMITIVE:
+                    if (marshalType.equals("byte"))
+                        pw.println("    " + name + " = src[pos];");
+                    else
+                        pw.println("    " + name + " = BigEndianBytes.get" + initialCap(marshalType) + "(src, pos);");
+                    pw.println("    " + advance(type));
+                    break;
+
+                case SISO_ENUM:
+                    pw.println("    " + name + " = " + type + ".unmarshalEnum(src, pos);");
+                    pw.println("    pos += " + type + ".MARSHALLED_SIZE;");
+                    break;
+
+                case SISO_BITFIELD:
+                case CLASSREF:
+                    if (MarshalledLayout.SHARED_VALUE_CLASSES.contains(type)) {
+                        pw.println("    " + name + " = " + name + ".read(src, pos);");
+                        pw.println("    pos += " + type + ".MARSHALLED_SIZE;");
+                    }
+                    else if (internerFor(anAttribute) != null) {
+                        pw.println("    " + name + " = " + internerFor(anAttribute) + ".read(src, pos);");
+                        pw.println("    pos += " + type + ".MARSHALLED_SIZE;");
+                    }
+                    else
+                        pw.println("    pos = " + name + (marshalsItself(type) ? ".unmarshal" : ".unmarshalFields") + "(src, pos);");
+                    break;
+
+                case PRIMITIVE_LIST:
+                    if (anAttribute.getCountFieldName() != null) {
+                        String count = unsignedCount(aClass, anAttribute);
+                        pw.println("    if(" + name + ".length != " + count + ")");
+                        pw.println("        " + name + " = new " + types.getProperty(type) + "[" + count + "];");
+                    }
+                    if (marshalType == null) { // It's a class
+                        pw.println("    for(int idx = 0; idx < " + name + ".length; idx++)");
+                        pw.println("        pos = " + name + "[idx].unmarshalFields(src, pos);");
+                    }
+                    else if (marshalType.equals("byte")) {
+                        pw.println("    System.arraycopy(src, pos, " + name + ", 0, " + name + ".length);");
+                        pw.println("    pos += " + name + ".length;");
+                    }
+                    else {
+                        pw.println("    for(int idx = 0; idx < " + name + ".length; idx++, " + advance(type).replace(";", ")"));
+                        pw.println("        " + name + "[idx] = BigEndianBytes.get" + initialCap(marshalType) + "(src, pos);");
+                    }
+                    break;
+
+                case OBJECT_LIST:
+                    // Elements already in the list are refilled in place, as unmarshal(ByteBuffer) does
+                    String listCount = anAttribute.getCountFieldName() != null ? unsignedCount(aClass, anAttribute) : name + ".size()";
+                    if (isLazyList(aClass, anAttribute)) {
+                        pw.println("    if(" + name + " instanceof LazyObjectList)");
+                        pw.println("        " + name + " = new ArrayList<>(); // its buffer may hold another PDU by now");
+                    }
+                    pw.println("    for(int idx = 0; idx < " + listCount + "; idx++)");
+                    pw.println("    {");
+                    if (anAttribute.getUnderlyingTypeIsEnum()) {
+                        pw.println("    " + type + " anX = " + type + ".unmarshalEnum(src, pos);");
+                        pw.println("    pos += " + type + ".MARSHALLED_SIZE;");
+                        pw.println("    if(idx < " + name + ".size())");
+                        pw.println("        " + name + ".set(idx, anX);");
+                        pw.println("    else");
+                        pw.println("        " + name + ".add(anX);");
+                    }
+                    else {
+                        pw.println("    " + type + " anX;");
+                        pw.println("    if(idx < " + name + ".size())");
+                        pw.println("        anX = " + name + ".get(idx);");
+                        pw.println("    else");
+                        pw.println("        " + name + ".add(anX = new " + type + "());");
+                        pw.println("    pos = anX." + (marshalsItself(type) ? "unmarshal" : "unmarshalFields") + "(src, pos);");
+                    }
+                    pw.println("    }");
+                    if (anAttribute.getCountFieldName() != null) {
+                        pw.println("    if(" + name + ".size() > " + listCount + ")");
+                        pw.println("        " + name + ".subList(" + listCount + ", " + name + ".size()).clear();");
+                    }
+                    break;
+
+                case PADTO16:
+                case PADTO32:
+                case PADTO64:
+                    pw.println("    " + name + " = Align.padding(pos, " + padBoundary(anAttribute) + ");");
+                    pw.println("    pos += " + name + ";");
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        pw.println("    return pos;");
+        pw.println("}");
+    }
+
+    /**
+     * Writes a whole primitive array to or from the buffer in one transfer rather than element by element: bytes go
+     * straight through the buffer, wider types through a typed view of it, which shares the buffer's byte order.
+     * A view has its own position, so the buffer's is moved past the array afterwards.
+     * @param pw PrintWriter
+     * @param anAttribute primitive list attribute
+     * @param transfer "put" to marshal, "get" to unmarshal
+     */
+    private void writeBulkTransfer(PrintWriter pw, ClassAttribute anAttribute, String transfer)
+    {
+        String marshalType = marshalTypes.getProperty(anAttribute.getType());
+        if (marshalType.equals("byte")) {
+            pw.println("   buff." + transfer + "(" + anAttribute.getName() + ");");
+            return;
+        }
+        pw.println("   buff.as" + initialCap(marshalType) + "Buffer()." + transfer + "(" + anAttribute.getName() + ");");
+        pw.println("   buff.position(buff.position() + " + anAttribute.getName() + ".length * " + primitiveSizesMap.get(anAttribute.getType()) + ");");
+    }
+
     /**
      * Placed in the {@link Pdu} class, this method provides a convenient,
      * though inefficient way to marshal a Pdu. Better is to reuse a
@@ -1424,6 +2122,30 @@ public class JavaGenerator extends Generator
         pw.println("    marshal(buff);");
         pw.println("    return data;");
         pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Packs this PDU into a buffer the caller supplies, such as one from a {@link DirectBufferPool}, starting at an");
+        pw.println(" * absolute index, without allocating. Like an absolute put, this leaves the buffer's position and limit where they were.");
+        pw.println(" * As with {@link #marshal(java.nio.ByteBuffer)}, padding aligns to the buffer index.");
+        pw.println(" * @param dst buffer to write into");
+        pw.println(" * @param offset absolute index in dst of the first byte to write");
+        pw.println(" * @return number of bytes written");
+        pw.println(" * @throws java.nio.BufferOverflowException if the PDU does not fit between offset and the limit of dst");
+        pw.println(" * @throws Exception ByteBuffer-generated exception");
+        pw.println(" */");
+        pw.println("public int marshalTo(java.nio.ByteBuffer dst, int offset) throws Exception");
+        pw.println("{");
+        pw.println("    int position = dst.position();");
+        pw.println("    int limit = dst.limit();");
+        pw.println("    try {");
+        pw.println("        dst.position(offset);");
+        pw.println("        marshal(dst);");
+        pw.println("        return dst.position() - offset;");
+        pw.println("    }");
+        pw.println("    finally {");
+        pw.println("        dst.limit(limit).position(position);");
+        pw.println("    }");
+        pw.println("}");
 
     }
     
@@ -1670,19 +2392,11 @@ public class JavaGenerator extends Generator
                 break;
                 
               case PRIMITIVE_LIST:
-                pw.println();
-                pw.println("     for(int idx = 0; idx < "+ anAttribute.getListLength() + "; idx++)");
-                pw.println("     {");
-                pw.println("          if(!(" + attname + "[idx] == rhs." + attname + "[idx])) ivarsEqual = false;");
-                pw.println("     }");
-                pw.println();
+                pw.println("     if( ! (Arrays.equals(" + attname + ", rhs." + attname + "))) ivarsEqual = false;");
                 break;
 
               case OBJECT_LIST:
-                pw.println();
-                pw.println("     for(int idx = 0; idx < " + attname + ".size(); idx++)");
-                pw.println("        if( ! ( " + attname + ".get(idx).equals(rhs." + attname + ".get(idx)))) ivarsEqual = false;");
-                pw.println();
+                pw.println("     if( ! (" + attname + ".equals( rhs." + attname + ") )) ivarsEqual = false;");
                 break;
             }
           }
@@ -1701,6 +2415,123 @@ public class JavaGenerator extends Generator
         }
     }
  
+    /**
+     * Write hashCode() to agree with equalsImpl(): it combines the same fields, and a subclass adds its own to the
+     * hash of its superclass.  A record that packedKey() describes completely hashes that key instead.
+     *
+     * @param pw PrintWriter
+     * @param aClass class of interest
+     */
+    public void writeHashCodeMethod(PrintWriter pw, GeneratedClass aClass)
+    {
+        int packedSize = getMarshalledLayout().packedSize(aClass);
+        if (packedSize > 0)
+            writePackedKeyMethod(pw, aClass, packedSize);
+
+        pw.println();
+        pw.println("@Override");
+        pw.println(" public int hashCode()");
+        pw.println(" {");
+        if (packedSize > 0) {
+            pw.println("    return Long.hashCode(packedKey());");
+            pw.println(" }");
+            return;
+        }
+        if (aClass.getParentClass().equalsIgnoreCase("root"))
+            pw.println("    int result = 1;");
+        else
+            pw.println("    int result = super.hashCode();");
+
+        for (ClassAttribute anAttribute : aClass.getClassAttributes()) {
+            if (anAttribute.isHidden())
+                continue;
+            String attname = anAttribute.getName();
+            String hash;
+            switch (anAttribute.getAttributeKind()) {
+                case PRIMITIVE:
+                    String type = types.getProperty(anAttribute.getType());
+                    if (type == null)
+                        continue;
+                    switch (type) {
+                        case "long":
+                            hash = "Long.hashCode(" + attname + ")";
+                            break;
+                        case "float":
+                            hash = "Float.hashCode(" + attname + " + 0.0f)"; // -0.0 == 0.0, so both must hash as 0.0
+                            break;
+                        case "double":
+                            hash = "Double.hashCode(" + attname + " + 0.0)";
+                            break;
+                        default:
+                            hash = attname;
+                    }
+                    break;
+
+                case SISO_ENUM:
+                case SISO_BITFIELD:
+                case CLASSREF:
+                    hash = "Objects.hashCode(" + attname + ")";
+                    break;
+
+                case PRIMITIVE_LIST:
+                    hash = "Arrays.hashCode(" + attname + ")";
+                    break;
+
+                case OBJECT_LIST:
+                    hash = attname + ".hashCode()";
+                    break;
+
+                default:
+                    continue;
+            }
+            pw.println("    result = 31 * result + " + hash + ";");
+        }
+        pw.println("    return result;");
+        pw.println(" }");
+    }
+
+    /**
+     * Write packedKey(), the marshalled bytes of a record of at most 8 bytes as one unsigned number, so that maps can be
+     * keyed on a primitive long.  See {@link MarshalledLayout#packedSize}.
+     *
+     * @param pw PrintWriter
+     * @param aClass class of interest
+     * @param packedSize marshalled size of the class in bytes
+     */
+    private void writePackedKeyMethod(PrintWriter pw, GeneratedClass aClass, int packedSize)
+    {
+        List<String> terms = new ArrayList<>();
+        int shift = 0;
+        List<ClassAttribute> attributes = aClass.getClassAttributes();
+        for (int idx = attributes.size() - 1; idx >= 0; idx--) {
+            ClassAttribute anAttribute = attributes.get(idx);
+            String attname = anAttribute.getName();
+            String term;
+            int bytes;
+            if (anAttribute.getAttributeKind() == ClassAttributeType.CLASSREF) {
+                term = attname + ".packedKey()";
+                bytes = getMarshalledLayout().packedSize(classDescriptions.get(anAttribute.getType()));
+            }
+            else {
+                bytes = primitiveSizesMap.get(anAttribute.getType());
+                term = bytes == 8 ? attname : "(" + attname + " & 0x" + "FFFFFFFF".substring(0, 2 * bytes) + "L)";
+            }
+            terms.add(0, shift == 0 ? term : term + " << " + shift);
+            shift += 8 * bytes;
+        }
+
+        pw.println();
+        pw.println(" /**");
+        pw.println("  * The " + packedSize + " marshalled bytes of this record as one unsigned number, first byte most significant, for");
+        pw.println("  * maps keyed on a primitive long. Two records have the same key exactly when they are equal.");
+        pw.println("  * @return the packed fields");
+        pw.println("  */");
+        pw.println(" public long packedKey()");
+        pw.println(" {");
+        pw.println("    return " + String.join(" | ", terms) + ";");
+        pw.println(" }");
+    }
+
     /**
      * Build the toString() method for this class, using the toString() methods of the
      * fields of the object
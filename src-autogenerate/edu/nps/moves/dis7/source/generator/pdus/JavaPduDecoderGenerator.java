@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+package edu.nps.moves.dis7.source.generator.pdus;
+
+import java.util.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Companion to {@link JavaGenerator} that writes PduDecoder, which turns marshalled PDUs back into objects.  The pduType
+ * byte is read at its offset in the header, computed here from the XML, and a generated switch over DISPDUType picks the
+ * constructor, so decoding needs no reflection and no search of the enumeration.
+ */
+public class JavaPduDecoderGenerator
+{
+    static final String DECODER_CLASS = "PduDecoder";
+    static final String PDU_TYPE_PREFIX = "DISPDUType.";
+
+    private final JavaGenerator gen;
+
+    public JavaPduDecoderGenerator(JavaGenerator generator)
+    {
+        gen = generator;
+    }
+
+    /**
+     * Concrete PDU classes by the DISPDUType constant their constructor sets
+     * @return map of DISPDUType constant name to class name, sorted by constant name
+     */
+    Map<String, String> pduClassesByType()
+    {
+        Map<String, String> pduClasses = new TreeMap<>();
+        for (GeneratedClass aClass : gen.classDescriptions.values()) {
+            String type = pduTypeOf(aClass);
+            if (type == null)
+                continue;
+            // Where two classes share a type (EntityStatePdu, FastEntityStatePdu) the first by name is used, independent of map order
+            String previous = pduClasses.get(type);
+            if (previous == null || aClass.getName().compareTo(previous) < 0)
+                pduClasses.put(type, aClass.getName());
+            if (previous != null)
+                System.out.println(DECODER_CLASS + ": " + aClass.getName() + " and " + previous + " both set pduType " + type + ", using " + pduClasses.get(type));
+        }
+        // Hand-written PDUs in src-specialcase are left out of the XML, so they are added by name
+        for (String className : MarshalledLayout.HANDWRITTEN_CLASSES) {
+            String type = handwrittenPduTypeOf(className);
+            if (type != null && !pduClasses.containsKey(type))
+                pduClasses.put(type, className);
+        }
+        return pduClasses;
+    }
+
+    /**
+     * @param className name of a hand-written class
+     * @return the DISPDUType constant name of a PDU class named for it, e.g. INTERCOM_SIGNAL for IntercomSignalPdu,
+     * or null if the class is not a PDU
+     */
+    static String handwrittenPduTypeOf(String className)
+    {
+        if (!className.endsWith("Pdu"))
+            return null;
+        String stem = className.substring(0, className.length() - "Pdu".length());
+        return stem.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    /**
+     * @param aClass class of interest
+     * @return the DISPDUType constant name the constructor of a concrete PDU class sets, or null if not a concrete PDU class
+     */
+    static String pduTypeOf(GeneratedClass aClass)
+    {
+        if (aClass.isAbstract() || aClass.getAliasFor() != null)
+            return null;
+        for (InitialValue anInit : aClass.getInitialValues()) {
+            String value = anInit.getVariableValue();
+            if (anInit.getVariable().equals("pduType") && value.startsWith(PDU_TYPE_PREFIX))
+                return value.substring(PDU_TYPE_PREFIX.length());
+        }
+        return null;
+    }
+
+    /**
+     * Write PduDecoder.java
+     * @param packagePath directory of the generated package
+     * @return number of PDU types the decoder can create
+     */
+    public int writeDecoder(String packagePath)
+    {
+        Map<String, String> pduClasses = pduClassesByType();
+        File outputFile = new File(packagePath, DECODER_CLASS + ".java");
+        try {
+            outputFile.getParentFile().mkdirs();
+            StringWriter text = new StringWriter();
+            try (PrintWriter pw = new PrintWriter(text)) {
+                writeDecoder(pw, pduClasses);
+            }
+            gen.manifest.write(outputFile, text.toString());
+        }
+        catch (IOException e) {
+            e.printStackTrace(System.err);
+            System.err.println("error creating decoder source code " + e);
+            return 0;
+        }
+        return pduClasses.size();
+    }
+
+    /** Constant expression for the offset of a field of the Pdu header */
+    private String headerOffset(String fieldName)
+    {
+        MarshalledLayout layout = gen.getMarshalledLayout();
+        List<ClassAttribute> preceding = new ArrayList<>();
+        for (ClassAttribute anAttribute : layout.flattenedAttributes(gen.classDescriptions.get("Pdu"))) {
+            if (anAttribute.getName().equals(fieldName))
+                break;
+            preceding.add(anAttribute);
+        }
+        return layout.sizeExpression(preceding, "");
+    }
+
+    private void writeDecoder(PrintWriter pw, Map<String, String> pduClasses)
+    {
+        MarshalledLayout layout = gen.getMarshalledLayout();
+
+        pw.println(gen.license);
+        pw.println();
+        String packageName = gen.languageProperties.getProperty("package");
+        if (packageName != null)
+            pw.println("package " + packageName + ";");
+        pw.println();
+        pw.println("import java.nio.ByteBuffer;");
+        pw.println("import java.util.ArrayList;");
+        pw.println("import java.util.List;");
+        pw.println("import edu.nps.moves.dis7.enumerations.*;");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Decodes marshalled PDUs into new PDU objects. The pduType byte is read at a fixed header offset and a switch over");
+        pw.println(" * {@link DISPDUType} picks the constructor; no reflection is used. Several PDUs sent back to back in one datagram");
+        pw.println(" * are decoded with {@link #decodeBundle(ByteBuffer, List)}. Use {@link PduPool} to decode into reused PDUs instead.");
+        pw.println(" * " + gen.specSource);
+        pw.println(" */");
+        pw.println("public class " + DECODER_CLASS);
+        pw.println("{");
+        pw.println("   /** Index of the pduType field within the PDU header */");
+        pw.println("   public static final int PDU_TYPE_OFFSET = " + headerOffset("pduType") + ";");
+        pw.println();
+        pw.println("   /** Index of the length field within the PDU header */");
+        pw.println("   public static final int LENGTH_OFFSET = " + headerOffset("length") + ";");
+        pw.println();
+        pw.println("   /** Size of the header fields common to every PDU */");
+        pw.println("   public static final int COMMON_HEADER_SIZE = " + layout.sizeExpression(layout.flattenedAttributes(gen.classDescriptions.get("Pdu")), "") + ";");
+        pw.println();
+        pw.println("   private " + DECODER_CLASS + "()");
+        pw.println("   {");
+        pw.println("   }");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Read the type of the PDU at the buffer position without changing the position");
+        pw.println(" * @param buff buffer holding a marshalled PDU");
+        pw.println(" * @return the PDU type, or null if the value is not a known type");
+        pw.println(" */");
+        pw.println("public static DISPDUType peekType(ByteBuffer buff)");
+        pw.println("{");
+        pw.println("    return DISPDUType.unmarshalEnum(buff, buff.position() + PDU_TYPE_OFFSET);");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * @param type type of PDU wanted");
+        pw.println(" * @return a newly constructed PDU of the type, or null if the type has no PDU class");
+        pw.println(" */");
+        pw.println("public static Pdu newPdu(DISPDUType type)");
+        pw.println("{");
+        pw.println("    switch(type)");
+        pw.println("    {");
+        for (Map.Entry<String, String> entry : pduClasses.entrySet())
+            pw.println("        case " + entry.getKey() + ": return new " + entry.getValue() + "();");
+        pw.println("        default: return null;");
+        pw.println("    }");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Unpacks the PDU at the buffer position into a new PDU of its type");
+        pw.println(" * @param buff The ByteBuffer at the position to begin reading");
+        pw.println(" * @return the PDU, or null with the buffer position unchanged if the type has no PDU class");
+        pw.println(" * @throws Exception ByteBuffer-generated exception");
+        pw.println(" */");
+        pw.println("public static Pdu decode(ByteBuffer buff) throws Exception");
+        pw.println("{");
+        pw.println("    DISPDUType type = peekType(buff);");
+        pw.println("    if(type == null)");
+        pw.println("        return null;");
+        pw.println("    Pdu pdu = newPdu(type);");
+        pw.println("    if(pdu != null)");
+        pw.println("        pdu.unmarshal(buff);");
+        pw.println("    return pdu;");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * @param data one marshalled PDU");
+        pw.println(" * @return the PDU, or null if the type has no PDU class");
+        pw.println(" * @throws Exception ByteBuffer-generated exception");
+        pw.println(" */");
+        pw.println("public static Pdu decode(byte[] data) throws Exception");
+        pw.println("{");
+        pw.println("    return decode(ByteBuffer.wrap(data));");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Decodes PDUs sent back to back in one datagram, from the buffer position to its limit. Each PDU is located by");
+        pw.println(" * its header length field, so a PDU of unknown type is skipped; when the length field is zero the next PDU is");
+        pw.println(" * taken to start where unmarshalling stopped. Decoding stops at the first PDU that cannot be located.");
+        pw.println(" * @param buff The ByteBuffer at the position of the first PDU");
+        pw.println(" * @param pdus list the decoded PDUs are added to");
+        pw.println(" * @return number of PDUs added");
+        pw.println(" * @throws Exception ByteBuffer-generated exception");
+        pw.println(" */");
+        pw.println("public static int decodeBundle(ByteBuffer buff, List<Pdu> pdus) throws Exception");
+        pw.println("{");
+        pw.println("    int count = 0;");
+        pw.println("    while(buff.remaining() >= COMMON_HEADER_SIZE)");
+        pw.println("    {");
+        pw.println("        int start = buff.position();");
+        pw.println("        int length = buff.getShort(start + LENGTH_OFFSET) & 0xFFFF;");
+        pw.println("        if(length > buff.remaining())");
+        pw.println("            break;");
+        pw.println("        Pdu pdu = decode(buff);");
+        pw.println("        if(pdu != null) {");
+        pw.println("            pdus.add(pdu);");
+        pw.println("            count++;");
+        pw.println("        }");
+        pw.println("        else if(length == 0)");
+        pw.println("            break;");
+        pw.println("        if(length != 0)");
+        pw.println("            buff.position(start + length);");
+        pw.println("    }");
+        pw.println("    return count;");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * @param data marshalled PDUs sent back to back in one datagram");
+        pw.println(" * @return the decoded PDUs, see {@link #decodeBundle(ByteBuffer, List)}");
+        pw.println(" * @throws Exception ByteBuffer-generated exception");
+        pw.println(" */");
+        pw.println("public static List<Pdu> decodeBundle(byte[] data) throws Exception");
+        pw.println("{");
+        pw.println("    List<Pdu> pdus = new ArrayList<>();");
+        pw.println("    decodeBundle(ByteBuffer.wrap(data), pdus);");
+        pw.println("    return pdus;");
+        pw.println("}");
+        pw.println("} // end of class");
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+package edu.nps.moves.dis7.source.generator.pdus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Companion to {@link JavaGenerator} that writes PduPool, a per-PDU-type pool of reusable PDU objects.  The pool
+ * decodes a datagram into an idle PDU of the right type, relying on the generated unmarshal methods refilling nested
+ * objects and list elements in place, so that a steady-state receiver allocates almost nothing per datagram.
+ */
+public class JavaPduPoolGenerator
+{
+    static final String POOL_CLASS = "PduPool";
+
+    private final JavaGenerator gen;
+
+    public JavaPduPoolGenerator(JavaGenerator generator)
+    {
+        gen = generator;
+    }
+
+    /**
+     * Write PduPool.java
+     * @param packagePath directory of the generated package
+     * @return true if the file was written
+     */
+    public boolean writePool(String packagePath)
+    {
+        File outputFile = new File(packagePath, POOL_CLASS + ".java");
+        try {
+            outputFile.getParentFile().mkdirs();
+            StringWriter text = new StringWriter();
+            try (PrintWriter pw = new PrintWriter(text)) {
+                writePool(pw);
+            }
+            gen.manifest.write(outputFile, text.toString());
+        }
+        catch (IOException e) {
+            e.printStackTrace(System.err);
+            System.err.println("error creating pool source code " + e);
+            return false;
+        }
+        return true;
+    }
+
+    private void writePool(PrintWriter pw)
+    {
+        pw.println(gen.license);
+        pw.println();
+        String packageName = gen.languageProperties.getProperty("package");
+        if (packageName != null)
+            pw.println("package " + packageName + ";");
+        pw.println();
+        pw.println("import java.nio.ByteBuffer;");
+        pw.println("import java.util.ArrayDeque;");
+        pw.println("import java.util.EnumMap;");
+        pw.println("import edu.nps.moves.dis7.enumerations.*;");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Pool of reusable PDU objects keyed by {@link DISPDUType}. A receiver decodes each datagram with {@link #unmarshal(ByteBuffer)},");
+        pw.println(" * which refills an idle PDU of the right type in place, and hands the PDU back with {@link #release(Pdu)} once done");
+        pw.println(" * with it. Nested objects and list elements are reused, so in steady state a datagram costs almost no garbage.");
+        pw.println(" * That holds for receiving only: {@link #acquire(DISPDUType)} resets the PDU, which empties its object lists, so a");
+        pw.println(" * sender supplies list elements of its own. PduPoolBenchmark in src-benchmark measures the allocation of both.");
+        pw.println(" * Not thread safe; use one pool per receiving thread.");
+        pw.println(" * " + gen.specSource);
+        pw.println(" */");
+        pw.println("public class " + POOL_CLASS);
+        pw.println("{");
+        pw.println("   private final EnumMap<DISPDUType, ArrayDeque<Pdu>> idle = new EnumMap<>(DISPDUType.class);");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Take a PDU for filling in and sending");
+        pw.println(" * @param type type of PDU wanted");
+        pw.println(" * @return an idle PDU reset to its constructed values, with empty object lists, a new PDU if none is idle, or null if");
+        pw.println(" * the type has no PDU class");
+        pw.println(" */");
+        pw.println("public Pdu acquire(DISPDUType type)");
+        pw.println("{");
+        pw.println("    Pdu pdu = poll(type);");
+        pw.println("    if(pdu == null)");
+        pw.println("        return " + JavaPduDecoderGenerator.DECODER_CLASS + ".newPdu(type);");
+        pw.println("    pdu.reset();");
+        pw.println("    return pdu;");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Hand a PDU back for reuse; the caller must not use it afterwards");
+        pw.println(" * @param pdu PDU obtained from this pool");
+        pw.println(" * @throws IllegalArgumentException if the PDU has no pduType to pool it under");
+        pw.println(" */");
+        pw.println("public void release(Pdu pdu)");
+        pw.println("{");
+        pw.println("    if(pdu.getPduType() == null)");
+        pw.println("        throw new IllegalArgumentException(\"cannot pool a \" + pdu.getClass().getSimpleName() + \" whose pduType is null\");");
+        pw.println("    ArrayDeque<Pdu> idleOfType = idle.get(pdu.getPduType());");
+        pw.println("    if(idleOfType == null)");
+        pw.println("        idle.put(pdu.getPduType(), idleOfType = new ArrayDeque<>());");
+        pw.println("    idleOfType.push(pdu);");
+        pw.println("}");
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Unpacks the PDU at the buffer position into an idle PDU of its type, or a new one if none is idle.");
+        pw.println(" * Fields not on the wire keep whatever the idle PDU held; use {@link #acquire(DISPDUType)} for a clean PDU.");
+        pw.println(" * @param buff The ByteBuffer at the position to begin reading");
+        pw.println(" * @return the PDU, or null with the buffer position unchanged if the type has no PDU class");
+        pw.println(" * @throws Exception ByteBuffer-generated exception");
+        pw.println(" */");
+        pw.println("public Pdu unmarshal(ByteBuffer buff) throws Exception");
+        pw.println("{");
+        pw.println("    DISPDUType type = " + JavaPduDecoderGenerator.DECODER_CLASS + ".peekType(buff);");
+        pw.println("    if(type == null)");
+        pw.println("        return null;");
+        pw.println("    Pdu pdu = poll(type);");
+        pw.println("    if(pdu == null)");
+        pw.println("        pdu = " + JavaPduDecoderGenerator.DECODER_CLASS + ".newPdu(type);");
+        pw.println("    if(pdu != null)");
+        pw.println("        pdu.unmarshal(buff);");
+        pw.println("    return pdu;");
+        pw.println("}");
+        pw.println();
+        pw.println("private Pdu poll(DISPDUType type)");
+        pw.println("{");
+        pw.println("    ArrayDeque<Pdu> idleOfType = idle.get(type);");
+        pw.println("    return idleOfType == null ? null : idleOfType.poll();");
+        pw.println("}");
+        pw.println("} // end of class");
+    }
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+package edu.nps.moves.dis7.source.generator.pdus;
+
+import java.util.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+
+/**
+ * Companion to {@link JavaGenerator} that writes an XxxView flyweight for each generated class.  A view wraps a
+ * ByteBuffer plus an offset and reads fields on demand with absolute gets at offsets computed from the XML layout,
+ * so a receiver can look at a few fields of a PDU without unmarshalling the whole object graph.
+ * <p>
+ * Offsets that depend only on fixed-size fields are emitted as constant expressions.  Fields following variable-length
+ * content (object lists, counted primitive lists, padding, nested variable-length records) are located at run time by
+ * walking the preceding content, and list elements are only located when asked for.  A class with a field whose size
+ * cannot be derived from the XML (for example a hand-written special case class) gets no view, so that code reaching
+ * for one fails to compile rather than at run time.
+ * <p>
+ * Enabled with system property xmlpg.generateViews=true.
+ */
+public class JavaViewGenerator
+{
+    static final String VIEW_SUFFIX = "View";
+
+    private final JavaGenerator gen;
+    private final MarshalledLayout layout;
+    /** Accessor base names for the view being written; an inherited field hidden by a subclass field gets its class name as prefix */
+    private final Map<ClassAttribute, String> accessorNames = new IdentityHashMap<>();
+
+    public JavaViewGenerator(JavaGenerator generator)
+    {
+        gen = generator;
+        layout = generator.getMarshalledLayout();
+    }
+
+    /**
+     * Write a view for every generated class that is not hand-written and whose layout can be derived from the XML
+     * @param packagePath directory of the generated package
+     * @return number of views written
+     */
+    public int writeViews(String packagePath)
+    {
+        int viewCount = 0;
+        for (GeneratedClass aClass : gen.classDescriptions.values()) {
+            if (layout.isHandwritten(aClass) || layout.layoutState(aClass) == MarshalledLayout.State.OPAQUE)
+                continue;
+            File outputFile = new File(packagePath, aClass.getName() + VIEW_SUFFIX + ".java");
+            try {
+                outputFile.getParentFile().mkdirs();
+                StringWriter text = new StringWriter();
+                try (PrintWriter pw = new PrintWriter(text)) {
+                    writeView(pw, aClass);
+                }
+                gen.manifest.write(outputFile, text.toString());
+                viewCount++;
+            }
+            catch (IOException e) {
+                e.printStackTrace(System.err);
+                System.err.println("error creating view source code " + e);
+            }
+        }
+        return viewCount;
+    }
+
+    private void writeView(PrintWriter pw, GeneratedClass aClass)
+    {
+        String viewName = aClass.getName() + VIEW_SUFFIX;
+
+        pw.println(gen.license);
+        pw.println();
+        String packageName = gen.languageProperties.getProperty("package");
+        if (packageName != null)
+            pw.println("package " + packageName + ";");
+        pw.println();
+        StringTokenizer tokenizer = new StringTokenizer(gen.languageProperties.getProperty("imports"), ", ");
+        while (tokenizer.hasMoreTokens())
+            pw.println("import " + tokenizer.nextToken() + ";");
+        pw.println();
+
+        pw.println("/**");
+        pw.println(" * Flyweight view of a marshalled {@link " + aClass.getName() + "}. Fields are read on demand from the wrapped ByteBuffer");
+        pw.println(" * with absolute gets, without unmarshalling; variable-length lists are only walked when accessed.");
+        pw.println(" * A view may be re-wrapped over any number of records.");
+        pw.println(" * " + gen.specSource);
+        pw.println(" */");
+
+        if (aClass.getAliasFor() != null) {
+            pw.println("public class " + viewName + " extends " + aClass.getAliasFor() + VIEW_SUFFIX);
+            pw.println("{}");
+            return;
+        }
+
+        pw.println("public class " + viewName + " extends DisView");
+        pw.println("{");
+
+        List<ClassAttribute> attributes = layout.flattenedAttributes(aClass);
+        accessorNames.clear();
+        for (int i = 0; i < attributes.size(); i++) {
+            ClassAttribute anAttribute = attributes.get(i);
+            String name = anAttribute.getName();
+            for (ClassAttribute later : attributes.subList(i + 1, attributes.size()))
+                if (later.getName().equals(name))
+                    name = gen.initialLower(layout.ownerOf(anAttribute).getName()) + gen.initialCap(name);
+            accessorNames.put(anAttribute, name);
+        }
+        MarshalledLayout.State state = layout.layoutState(aClass);
+        if (state == MarshalledLayout.State.FIXED) {
+            pw.println("   /** Marshalled size in bytes, the same for every " + aClass.getName() + " */");
+            pw.println("   public static final int MARSHALLED_SIZE = " + layout.sizeExpression(attributes, VIEW_SUFFIX) + ";");
+            pw.println();
+        }
+
+        pw.println("/**");
+        pw.println(" * Point this view at a marshalled " + aClass.getName());
+        pw.println(" * @param buff buffer holding the marshalled data");
+        pw.println(" * @param offset absolute index in buff of the first byte");
+        pw.println(" * @return this view");
+        pw.println(" */");
+        pw.println("@Override");
+        pw.println("public " + viewName + " wrap(java.nio.ByteBuffer buff, int offset)");
+        pw.println("{");
+        pw.println("    super.wrap(buff, offset);");
+        pw.println("    return this;");
+        pw.println("}");
+        pw.println();
+
+        // Offset of the next field: anchor expression plus constant bytes plus symbolic fixed sizes
+        String anchor = "offset";
+        int constant = 0;
+        List<String> terms = new ArrayList<>();
+
+        for (int i = 0; i < attributes.size(); i++) {
+            ClassAttribute anAttribute = attributes.get(i);
+            if (!layout.isSerialized(anAttribute))
+                continue;
+
+            String name = accessorNames.get(anAttribute);
+            pw.println("protected int " + name + "Offset()");
+            pw.println("{");
+            pw.println("    return " + MarshalledLayout.expression(anchor, constant, terms) + ";");
+            pw.println("}");
+            pw.println();
+
+            MarshalledLayout.State attState = layout.attributeState(anAttribute, attributes.subList(0, i));
+            writeAccessors(pw, anAttribute, attributes.subList(0, i));
+
+            if (attState == MarshalledLayout.State.FIXED) {
+                constant += layout.fixedConstant(anAttribute);
+                String term = layout.fixedTerm(anAttribute, VIEW_SUFFIX);
+                if (term != null)
+                    terms.add(term);
+            }
+            else {
+                writeEndMethod(pw, anAttribute, attributes.subList(0, i));
+                anchor = name + "End()";
+                constant = 0;
+                terms.clear();
+            }
+        }
+
+        pw.println("@Override");
+        pw.println("protected int endOffset()");
+        pw.println("{");
+        if (state == MarshalledLayout.State.FIXED)
+            pw.println("    return offset + MARSHALLED_SIZE;");
+        else
+            pw.println("    return " + MarshalledLayout.expression(anchor, constant, terms) + ";");
+        pw.println("}");
+
+        pw.println("} // end of class");
+    }
+
+    private void writeAccessors(PrintWriter pw, ClassAttribute anAttribute, List<ClassAttribute> preceding)
+    {
+        String name = accessorNames.get(anAttribute);
+        String capped = gen.initialCap(name);
+        String type = anAttribute.getType();
+        String offset = name + "Offset()";
+
+        if (anAttribute.getComment() != null)
+            pw.println("/** " + anAttribute.getComment() + " */");
+
+        switch (anAttribute.getAttributeKind()) {
+            case PRIMITIVE:
+                pw.println("public " + gen.types.getProperty(type) + " get" + capped + "()");
+                pw.println("{");
+                pw.println("    return " + absoluteGet(type, offset) + ";");
+                pw.println("}");
+                break;
+
+            case SISO_ENUM:
+                pw.println("public " + type + " get" + capped + "()");
+                pw.println("{");
+                pw.println("    return " + type + ".unmarshalEnum(buff, " + offset + ");");
+                pw.println("}");
+                break;
+
+            case SISO_BITFIELD:
+                writeUnmarshalIntoAccessor(pw, type, capped, offset);
+                break;
+
+            case CLASSREF:
+                if (MarshalledLayout.SHARED_VALUE_CLASSES.contains(type)) {
+                    // The view does not know which enumeration the value belongs to; the caller passes one of its values
+                    pw.println("public " + type + " get" + capped + "(" + type + " like)");
+                    pw.println("{");
+                    pw.println("    return like.read(buff, " + offset + ");");
+                    pw.println("}");
+                    break;
+                }
+                if (MarshalledLayout.FIXED_SUPPORT_CLASSES.contains(type)) {
+                    writeUnmarshalIntoAccessor(pw, type, capped, offset);
+                    break;
+                }
+                String viewType = type + VIEW_SUFFIX;
+                pw.println("public " + viewType + " get" + capped + "()");
+                pw.println("{");
+                pw.println("    if (" + name + VIEW_SUFFIX + " == null)");
+                pw.println("        " + name + VIEW_SUFFIX + " = new " + viewType + "();");
+                pw.println("    return " + name + VIEW_SUFFIX + ".wrap(buff, " + offset + ");");
+                pw.println("}");
+                pw.println("private " + viewType + " " + name + VIEW_SUFFIX + ";");
+                break;
+
+            case PRIMITIVE_LIST:
+                pw.println("public " + gen.types.getProperty(type) + " get" + capped + "(int idx)");
+                pw.println("{");
+                pw.println("    return " + absoluteGet(type, offset + " + idx * " + gen.primitiveSizesMap.get(type)) + ";");
+                pw.println("}");
+                pw.println();
+                pw.println("public int get" + capped + "Count()");
+                pw.println("{");
+                if (anAttribute.getCountFieldName() == null)
+                    pw.println("    return " + anAttribute.getListLength() + ";");
+                else
+                    pw.println("    return " + countExpression(anAttribute, preceding) + ";");
+                pw.println("}");
+                break;
+
+            case OBJECT_LIST:
+                pw.println("public int get" + capped + "Count()");
+                pw.println("{");
+                pw.println("    return " + countExpression(anAttribute, preceding) + ";");
+                pw.println("}");
+                pw.println();
+                if (anAttribute.getUnderlyingTypeIsEnum()) {
+                    pw.println("public " + type + " get" + capped + "(int idx)");
+                    pw.println("{");
+                    pw.println("    return " + type + ".unmarshalEnum(buff, " + offset + " + idx * " + type + ".MARSHALLED_SIZE);");
+                    pw.println("}");
+                }
+                else if (anAttribute.getUnderlyingTypeIsBitfield()) {
+                    pw.println("public " + type + " get" + capped + "(int idx, " + type + " dest)");
+                    pw.println("{");
+                    pw.println("    dest.unmarshal(buff, " + offset + " + idx * " + type + ".MARSHALLED_SIZE);");
+                    pw.println("    return dest;");
+                    pw.println("}");
+                }
+                else if (gen.marshalTypes.getProperty(type) != null) {
+                    pw.println("public " + gen.types.getProperty(type) + " get" + capped + "(int idx)");
+                    pw.println("{");
+                    pw.println("    return " + absoluteGet(type, offset + " + idx * " + gen.primitiveSizesMap.get(type)) + ";");
+                    pw.println("}");
+                }
+                else {
+                    String elementView = type + VIEW_SUFFIX;
+                    pw.println("/** Locate one list element without unmarshalling it");
+                    pw.println("  * @param idx element index");
+                    pw.println("  * @param dest view to wrap over the element");
+                    pw.println("  * @return dest */");
+                    pw.println("public " + elementView + " get" + capped + "(int idx, " + elementView + " dest)");
+                    pw.println("{");
+                    if (layout.layoutState(gen.classDescriptions.get(type)) == MarshalledLayout.State.FIXED)
+                        pw.println("    return dest.wrap(buff, " + offset + " + idx * " + elementView + ".MARSHALLED_SIZE);");
+                    else {
+                        pw.println("    int pos = " + offset + ";");
+                        pw.println("    for (int i = 0; i < idx; i++)");
+                        pw.println("        pos = dest.wrap(buff, pos).endOffset();");
+                        pw.println("    return dest.wrap(buff, pos);");
+                    }
+                    pw.println("}");
+                }
+                break;
+
+            default:
+                break;
+        }
+        pw.println();
+    }
+
+    private void writeUnmarshalIntoAccessor(PrintWriter pw, String type, String capped, String offset)
+    {
+        pw.println("public " + type + " get" + capped + "(" + type + " dest)");
+        pw.println("{");
+        pw.println("    dest.unmarshal(buff, " + offset + ");");
+        pw.println("    return dest;");
+        pw.println("}");
+    }
+
+    /** Method returning the index just past a variable-length field */
+    private void writeEndMethod(PrintWriter pw, ClassAttribute anAttribute, List<ClassAttribute> preceding)
+    {
+        String name = accessorNames.get(anAttribute);
+        String capped = gen.initialCap(name);
+        String type = anAttribute.getType();
+        String offset = name + "Offset()";
+
+        switch (anAttribute.getAttributeKind()) {
+            case CLASSREF:
+                pw.println("protected int " + name + "End()");
+                pw.println("{");
+                pw.println("    return get" + capped + "().endOffset();");
+                pw.println("}");
+                break;
+
+            case PRIMITIVE_LIST:
+                pw.println("protected int " + name + "End()");
+                pw.println("{");
+                pw.println("    return " + offset + " + get" + capped + "Count() * " + gen.primitiveSizesMap.get(type) + ";");
+                pw.println("}");
+                break;
+
+            case OBJECT_LIST:
+                pw.println("protected int " + name + "End()");
+                pw.println("{");
+                if (anAttribute.getUnderlyingTypeIsEnum() || anAttribute.getUnderlyingTypeIsBitfield())
+                    pw.println("    return " + offset + " + get" + capped + "Count() * " + type + ".MARSHALLED_SIZE;");
+                else if (gen.marshalTypes.getProperty(type) != null)
+                    pw.println("    return " + offset + " + get" + capped + "Count() * " + gen.primitiveSizesMap.get(type) + ";");
+                else if (layout.layoutState(gen.classDescriptions.get(type)) == MarshalledLayout.State.FIXED)
+                    pw.println("    return " + offset + " + get" + capped + "Count() * " + type + VIEW_SUFFIX + ".MARSHALLED_SIZE;");
+                else {
+                    String elementView = type + VIEW_SUFFIX;
+                    pw.println("    if (" + name + "Walker == null)");
+                    pw.println("        " + name + "Walker = new " + elementView + "();");
+                    pw.println("    int pos = " + offset + ";");
+                    pw.println("    for (int i = get" + capped + "Count(); i > 0; i--)");
+                    pw.println("        pos = " + name + "Walker.wrap(buff, pos).endOffset();");
+                    pw.println("    return pos;");
+                    pw.println("}");
+                    pw.println("private " + elementView + " " + name + "Walker;");
+                    pw.println();
+                    return;
+                }
+                pw.println("}");
+                break;
+
+            case PADTO16:
+            case PADTO32:
+            case PADTO64:
+                pw.println("protected int " + name + "End()");
+                pw.println("{");
+                pw.println("    int pos = " + offset + ";");
+                pw.println("    return pos + padTo(pos, " + padBoundary(anAttribute) + ");");
+                pw.println("}");
+                break;
+
+            default:
+                break;
+        }
+        pw.println();
+    }
+
+    /** Count fields are unsigned on the wire */
+    private String countExpression(ClassAttribute list, List<ClassAttribute> preceding)
+    {
+        ClassAttribute count = layout.countField(list, preceding);
+        String offset = accessorNames.get(count) + "Offset()";
+        switch (count.getType()) {
+            case "uint8":
+                return "(buff.get(" + offset + ") & 0xFF)";
+            case "uint16":
+                return "(buff.getShort(" + offset + ") & 0xFFFF)";
+            default:
+                return "(int)" + absoluteGet(count.getType(), offset);
+        }
+    }
+
+    private String absoluteGet(String type, String index)
+    {
+        String capped = gen.initialCap(gen.marshalTypes.getProperty(type));
+        if (capped.equals("Byte"))
+            capped = ""; // ByteBuffer just has get() for bytes
+        return "buff.get" + capped + "(" + index + ")";
+    }
+
+    private int padBoundary(ClassAttribute anAttribute)
+    {
+        switch (anAttribute.getAttributeKind()) {
+            case PADTO16:
+                return 2;
+            case PADTO32:
+                return 4;
+            default:
+                return 8;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+package edu.nps.moves.dis7.source.generator.pdus;
+
+import java.util.*;
+
+import edu.nps.moves.dis7.source.generator.pdus.ClassAttribute.ClassAttributeType;
+
+/**
+ * Works out from the XML class descriptions which generated classes have a marshalled layout whose size is known
+ * at generation time, which can be located by walking counted lists and padding, and which cannot be derived at all.
+ * Used by {@link JavaGenerator} to emit MARSHALLED_SIZE constants and by {@link JavaViewGenerator} to compute field offsets.
+ */
+class MarshalledLayout
+{
+    /** Classes replaced by hand-written versions in src-specialcase whose wire layout differs from the XML */
+    static final Set<String> HANDWRITTEN_CLASSES = new HashSet<>(Arrays.asList("VariableDatum", "SignalPdu", "IntercomSignalPdu"));
+
+    /** Hand-written classes that also have a hand-written variable-length view in src-specialcase */
+    static final Set<String> HANDWRITTEN_VIEWS = new HashSet<>(Arrays.asList("VariableDatum"));
+
+    /** Hand-written classes padding to the stream position, whose unmarshal(int, DataInputStream) takes the bytes read so far */
+    static final Set<String> STREAM_POSITION_CLASSES = new HashSet<>(Arrays.asList("VariableDatum"));
+
+    /** Supporting (non-generated) classes with a fixed MARSHALLED_SIZE and an absolute unmarshal(ByteBuffer,int) */
+    static final Set<String> FIXED_SUPPORT_CLASSES = new HashSet<>(Arrays.asList("PduStatus", "EntityCapabilities", "Domain"));
+
+    /** Supporting classes with shared immutable instances; unmarshalling replaces the field with the instance read */
+    static final Set<String> SHARED_VALUE_CLASSES = new HashSet<>(Arrays.asList("Domain"));
+
+    /** Classes whose fields may instead hold shared immutable instances, by the supporting class that interns them */
+    static final Map<String, String> INTERNED_CLASSES = Collections.singletonMap("EntityType", "CanonicalEntityType");
+
+    enum State { FIXED, DYNAMIC, OPAQUE, IN_PROGRESS };
+
+    private final Map<String, GeneratedClass> classDescriptions;
+    private final Map<String, Integer> primitiveSizes;
+    private final Map<String, State> states = new HashMap<>();
+    private final Map<String, Boolean> constantSizes = new HashMap<>();
+    private final Map<ClassAttribute, GeneratedClass> owners = new IdentityHashMap<>();
+    /** Classes that some non-alias class inherits from; an instance of the declared type may marshal more fields */
+    private final Set<String> extendedClasses = new HashSet<>();
+
+    MarshalledLayout(Map<String, GeneratedClass> classDescriptions, Map<String, Integer> primitiveSizes)
+    {
+        this.classDescriptions = classDescriptions;
+        this.primitiveSizes = primitiveSizes;
+        for (GeneratedClass aClass : classDescriptions.values())
+            if (aClass.getAliasFor() == null && aClass.getParentClass() != null)
+                extendedClasses.add(aClass.getParentClass());
+    }
+
+    /** Whether every instance of a class has the same marshalled layout, a layout found by walking, or neither */
+    State layoutState(GeneratedClass aClass)
+    {
+        if (aClass == null || isHandwritten(aClass))
+            return State.OPAQUE;
+        if (aClass.getAliasFor() != null)
+            return layoutState(classDescriptions.get(aClass.getAliasFor()));
+
+        State state = states.get(aClass.getName());
+        if (state == State.IN_PROGRESS)
+            return State.OPAQUE; // recursive layout
+        if (state != null)
+            return state;
+
+        states.put(aClass.getName(), State.IN_PROGRESS);
+        state = State.FIXED;
+        List<ClassAttribute> attributes = flattenedAttributes(aClass);
+        for (int i = 0; i < attributes.size() && state != State.OPAQUE; i++) {
+            if (!isSerialized(attributes.get(i)))
+                continue;
+            State attState = attributeState(attributes.get(i), attributes.subList(0, i));
+            if (attState != State.FIXED)
+                state = attState;
+        }
+        states.put(aClass.getName(), state);
+        return state;
+    }
+
+    State attributeState(ClassAttribute anAttribute, List<ClassAttribute> preceding)
+    {
+        String type = anAttribute.getType();
+        switch (anAttribute.getAttributeKind()) {
+            case PRIMITIVE:
+                return primitiveSizes.containsKey(type) ? State.FIXED : State.OPAQUE;
+
+            case SISO_ENUM:
+            case SISO_BITFIELD:
+                return State.FIXED;
+
+            case CLASSREF:
+                if (FIXED_SUPPORT_CLASSES.contains(type))
+                    return State.FIXED;
+                if (HANDWRITTEN_VIEWS.contains(type))
+                    return State.DYNAMIC;
+                return layoutState(classDescriptions.get(type));
+
+            case PRIMITIVE_LIST:
+                if (!primitiveSizes.containsKey(type))
+                    return State.OPAQUE;
+                if (anAttribute.getCountFieldName() == null)
+                    return State.FIXED;
+                return countField(anAttribute, preceding) != null ? State.DYNAMIC : State.OPAQUE;
+
+            case OBJECT_LIST:
+                if (countField(anAttribute, preceding) == null)
+                    return State.OPAQUE;
+                if (anAttribute.getUnderlyingTypeIsEnum() || anAttribute.getUnderlyingTypeIsBitfield() || primitiveSizes.containsKey(type) || HANDWRITTEN_VIEWS.contains(type))
+                    return State.DYNAMIC;
+                return layoutState(classDescriptions.get(type)) == State.OPAQUE ? State.OPAQUE : State.DYNAMIC;
+
+            case PADTO16:
+            case PADTO32:
+            case PADTO64:
+                return State.DYNAMIC;
+
+            default:
+                return State.OPAQUE;
+        }
+    }
+
+    /**
+     * Whether every instance of the generated class marshals to the same number of bytes, so that it can carry a
+     * MARSHALLED_SIZE constant.  Stricter than a FIXED layout: a field of the declared type may not hold a subclass
+     * with more fields, and a primitive array must be declared fixedlength so a setter cannot change its size.
+     * @param aClass class of interest
+     * @return true if MARSHALLED_SIZE is emitted for the class
+     */
+    boolean hasConstantSize(GeneratedClass aClass)
+    {
+        if (aClass == null)
+            return false;
+        if (aClass.getAliasFor() != null)
+            return hasConstantSize(classDescriptions.get(aClass.getAliasFor()));
+
+        Boolean constant = constantSizes.get(aClass.getName());
+        if (constant != null)
+            return constant;
+
+        constant = layoutState(aClass) == State.FIXED && !extendedClasses.contains(aClass.getName());
+        for (ClassAttribute anAttribute : flattenedAttributes(aClass)) {
+            if (!constant)
+                break;
+            if (!isSerialized(anAttribute))
+                continue;
+            if (anAttribute.getAttributeKind() == ClassAttributeType.PRIMITIVE_LIST)
+                constant = anAttribute.isFixedLength();
+            else if (anAttribute.getAttributeKind() == ClassAttributeType.CLASSREF && !FIXED_SUPPORT_CLASSES.contains(anAttribute.getType()))
+                constant = hasConstantSize(classDescriptions.get(anAttribute.getType()));
+        }
+        constantSizes.put(aClass.getName(), constant);
+        return constant;
+    }
+
+    /**
+     * Marshalled size of a record that can be packed losslessly into a long: a root class of constant size, at most 8
+     * bytes, whose fields are all integer primitives or other such records.  Floating point fields are left out, as
+     * == and their bits disagree on -0.0 and NaN; SISO enumerations are too, as their widths are known only from the
+     * SISO XML.
+     * @param aClass class of interest
+     * @return size in bytes, or 0 if the class cannot be packed
+     */
+    int packedSize(GeneratedClass aClass)
+    {
+        if (aClass == null || aClass.getAliasFor() != null || isHandwritten(aClass) || !hasConstantSize(aClass)
+            || !aClass.getParentClass().equalsIgnoreCase("root"))
+            return 0;
+
+        int size = 0;
+        for (ClassAttribute anAttribute : aClass.getClassAttributes()) {
+            if (!isSerialized(anAttribute) || anAttribute.isHidden())
+                return 0;
+            String type = anAttribute.getType();
+            switch (anAttribute.getAttributeKind()) {
+                case PRIMITIVE:
+                    if (!primitiveSizes.containsKey(type) || type.startsWith("float"))
+                        return 0;
+                    size += primitiveSizes.get(type);
+                    break;
+
+                case CLASSREF:
+                    int nested = FIXED_SUPPORT_CLASSES.contains(type) ? 0 : packedSize(classDescriptions.get(type));
+                    if (nested == 0)
+                        return 0;
+                    size += nested;
+                    break;
+
+                default:
+                    return 0;
+            }
+        }
+        return size <= 8 ? size : 0;
+    }
+
+    /** The primitive field holding the element count of a list, which must precede it */
+    ClassAttribute countField(ClassAttribute list, List<ClassAttribute> preceding)
+    {
+        if (list.getCountFieldName() == null)
+            return null;
+        for (int i = preceding.size() - 1; i >= 0; i--) {
+            ClassAttribute anAttribute = preceding.get(i);
+            if (anAttribute.getName().equals(list.getCountFieldName()))
+                return anAttribute.getAttributeKind() == ClassAttributeType.PRIMITIVE && primitiveSizes.containsKey(anAttribute.getType()) ? anAttribute : null;
+        }
+        return null;
+    }
+
+    /** Attributes of the class and all of its superclasses, in wire order */
+    List<ClassAttribute> flattenedAttributes(GeneratedClass aClass)
+    {
+        LinkedList<GeneratedClass> lineage = new LinkedList<>();
+        for (GeneratedClass c = aClass; c != null; c = classDescriptions.get(c.getParentClass()))
+            lineage.addFirst(c);
+
+        List<ClassAttribute> attributes = new ArrayList<>();
+        for (GeneratedClass c : lineage)
+            for (ClassAttribute anAttribute : c.getClassAttributes()) {
+                attributes.add(anAttribute);
+                owners.put(anAttribute, c);
+            }
+        return attributes;
+    }
+
+    /** Class declaring an attribute returned by {@link #flattenedAttributes} */
+    GeneratedClass ownerOf(ClassAttribute anAttribute)
+    {
+        return owners.get(anAttribute);
+    }
+
+    boolean isHandwritten(GeneratedClass aClass)
+    {
+        for (GeneratedClass c = aClass; c != null; c = classDescriptions.get(c.getParentClass()))
+            if (HANDWRITTEN_CLASSES.contains(c.getName()) || (c.getAliasFor() != null && HANDWRITTEN_CLASSES.contains(c.getAliasFor())))
+                return true;
+        return false;
+    }
+
+    boolean isSerialized(ClassAttribute anAttribute)
+    {
+        return anAttribute.shouldSerialize && anAttribute.getAttributeKind() != ClassAttributeType.STATIC_IVAR;
+    }
+
+    /** Bytes a fixed-size attribute adds that are known as a number */
+    int fixedConstant(ClassAttribute anAttribute)
+    {
+        switch (anAttribute.getAttributeKind()) {
+            case PRIMITIVE:
+                return primitiveSizes.get(anAttribute.getType());
+            case PRIMITIVE_LIST:
+                return anAttribute.getListLength() * primitiveSizes.get(anAttribute.getType());
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Bytes a fixed-size attribute adds that are known only as another class's constant
+     * @param anAttribute fixed-size attribute
+     * @param classSuffix appended to the name of a generated class holding the constant, e.g. "View"
+     * @return constant expression, or null if the size is all in {@link #fixedConstant}
+     */
+    String fixedTerm(ClassAttribute anAttribute, String classSuffix)
+    {
+        switch (anAttribute.getAttributeKind()) {
+            case SISO_ENUM:
+            case SISO_BITFIELD:
+                return anAttribute.getType() + ".MARSHALLED_SIZE";
+            case CLASSREF:
+                if (FIXED_SUPPORT_CLASSES.contains(anAttribute.getType()))
+                    return anAttribute.getType() + ".MARSHALLED_SIZE";
+                return anAttribute.getType() + classSuffix + ".MARSHALLED_SIZE";
+            default:
+                return null;
+        }
+    }
+
+    /** Constant expression for the total size of fixed-size attributes */
+    String sizeExpression(List<ClassAttribute> attributes, String classSuffix)
+    {
+        int constant = 0;
+        List<String> terms = new ArrayList<>();
+        for (ClassAttribute anAttribute : attributes) {
+            if (!isSerialized(anAttribute))
+                continue;
+            constant += fixedConstant(anAttribute);
+            String term = fixedTerm(anAttribute, classSuffix);
+            if (term != null)
+                terms.add(term);
+        }
+        return expression(null, constant, terms);
+    }
+
+    static String expression(String anchor, int constant, List<String> terms)
+    {
+        StringBuilder sb = new StringBuilder();
+        if (anchor != null)
+            sb.append(anchor);
+        if (constant != 0 || (anchor == null && terms.isEmpty()))
+            sb.append(sb.length() > 0 ? " + " : "").append(constant);
+        for (String term : terms)
+            sb.append(sb.length() > 0 ? " + " : "").append(term);
+        return sb.toString();
+    }
+}
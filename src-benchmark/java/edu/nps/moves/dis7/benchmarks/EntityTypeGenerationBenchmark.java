@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.benchmarks;
+
+import edu.nps.moves.dis7.source.generator.GenerateOpenDis7JavaPackages;
+import edu.nps.moves.dis7.source.generator.Template;
+import edu.nps.moves.dis7.source.generator.entitytypes.GenerateEntityTypes;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Runs the whole entity type generator over the SISO XML into a fresh directory, and renders one entity class, the
+ * common part and a setter statement per level, with the compiled Template the generators use and, for comparison,
+ * with String.format as they used to.  Run from the project directory, as ant benchmark does, or set sisoXml.
+ * The generator's file manifests are kept in build/benchmark-manifest, away from those of the real build.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Dxmlpg.manifestDir=build/benchmark-manifest")
+public class EntityTypeGenerationBenchmark
+{
+  @Param({GenerateOpenDis7JavaPackages.DEFAULT_SISO_XML_FILE})
+  public String sisoXml;
+
+  private static final String STATEMENT = "        set%s((byte)%s); // uid %s, %s\n";
+
+  private String commonText;
+  private Template commonTemplate;
+  private Template statementTemplate;
+  private final StringBuilder sb = new StringBuilder(4096);
+
+  @Setup(Level.Trial)
+  public void loadTemplate() throws IOException
+  {
+    try (InputStream ins = GenerateEntityTypes.class.getResourceAsStream("entitytypecommon.txt")) {
+      commonText = IOUtils.toString(ins, StandardCharsets.UTF_8);
+    }
+    commonTemplate = Template.compile(commonText);
+    statementTemplate = Template.compile(STATEMENT);
+  }
+
+  /** A new, empty directory for each generator run, so that no run finds the files of the last one */
+  @State(Scope.Thread)
+  public static class Output
+  {
+    File directory;
+
+    @Setup(Level.Invocation)
+    public void create() throws IOException
+    {
+      directory = Files.createTempDirectory("entitytypes").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void delete() throws IOException
+    {
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
+  /** Every entity type class, the properties files and the catalogue, as generate-source-code writes them */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 5)
+  public File generateEntityTypes(Output output)
+  {
+    GenerateEntityTypes.generate(new String[]{sisoXml, output.directory.getPath(), "edu.nps.moves.dis7.entities"}, null);
+    return output.directory;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  public String renderClassTemplate()
+  {
+    sb.setLength(0);
+    commonTemplate.appendTo(sb, "edu.nps.moves.dis7.entities.usa.platform.air", "SISO-REF-010-2019", "F-16C Fighting Falcon",
+                            "United States of America (USA)", "Platform", "AIR", "28585", "F16C", "F16C", "USA", "PLATFORM", "PlatformDomain", "AIR");
+    statementTemplate.appendTo(sb, "Category", "1", "28583", "Fighter/Air Defense");
+    statementTemplate.appendTo(sb, "SubCategory", "2", "28584", "F-16 Fighting Falcon");
+    statementTemplate.appendTo(sb, "Specific", "3", "28585", "F-16C Fighting Falcon");
+    return sb.toString();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  public String renderClassFormat()
+  {
+    StringBuilder text = new StringBuilder();
+    text.append(String.format(commonText, "edu.nps.moves.dis7.entities.usa.platform.air", "SISO-REF-010-2019", "F-16C Fighting Falcon",
+                              "United States of America (USA)", "Platform", "AIR", "28585", "F16C", "F16C", "USA", "PLATFORM", "PlatformDomain", "AIR"));
+    text.append(String.format(STATEMENT, "Category", "1", "28583", "Fighter/Air Defense"));
+    text.append(String.format(STATEMENT, "SubCategory", "2", "28584", "F-16 Fighting Falcon"));
+    text.append(String.format(STATEMENT, "Specific", "3", "28585", "F-16C Fighting Falcon"));
+    return text.toString();
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.benchmarks;
+
+import edu.nps.moves.dis7.enumerations.DISPDUType;
+import edu.nps.moves.dis7.enumerations.VariableRecordType;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Looks up every value of an enumeration in turn with the generated getEnumForValue() and, for comparison, with the
+ * linear scan over values() it replaced.  DISPDUType has a compact value range and gets the dense lookup table;
+ * VariableRecordType spreads a few hundred values over a range in the hundreds of thousands and gets the binary search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumLookupBenchmark
+{
+  @Param({"DISPDUType", "VariableRecordType"})
+  public String enumeration;
+
+  private int[] values;
+  private int next;
+  private IntFunction<Enum<?>> table;
+  private IntFunction<Enum<?>> scan;
+
+  @Setup
+  public void setup()
+  {
+    switch (enumeration) {
+      case "DISPDUType":
+        values = new int[DISPDUType.values().length];
+        for (DISPDUType val : DISPDUType.values())
+          values[val.ordinal()] = val.getValue();
+        table = DISPDUType::getEnumForValue;
+        scan = EnumLookupBenchmark::scanDISPDUType;
+        break;
+      case "VariableRecordType":
+        values = new int[VariableRecordType.values().length];
+        for (VariableRecordType val : VariableRecordType.values())
+          values[val.ordinal()] = val.getValue();
+        table = VariableRecordType::getEnumForValue;
+        scan = EnumLookupBenchmark::scanVariableRecordType;
+        break;
+      default:
+        throw new IllegalArgumentException("no lookup benchmark for " + enumeration);
+    }
+  }
+
+  private int nextValue()
+  {
+    if (next == values.length)
+      next = 0;
+    return values[next++];
+  }
+
+  @Benchmark
+  public Enum<?> table()
+  {
+    return table.apply(nextValue());
+  }
+
+  @Benchmark
+  public Enum<?> scan()
+  {
+    return scan.apply(nextValue());
+  }
+
+  /** getEnumForValue() as the generator used to write it */
+  private static DISPDUType scanDISPDUType(int i)
+  {
+    for (DISPDUType val : DISPDUType.values()) {
+      if (val.getValue() == i)
+        return val;
+    }
+    return null;
+  }
+
+  /** getEnumForValue() as the generator used to write it */
+  private static VariableRecordType scanVariableRecordType(int i)
+  {
+    for (VariableRecordType val : VariableRecordType.values()) {
+      if (val.getValue() == i)
+        return val;
+    }
+    return null;
+  }
+}
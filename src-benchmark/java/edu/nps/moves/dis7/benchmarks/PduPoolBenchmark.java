@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.benchmarks;
+
+import edu.nps.moves.dis7.*;
+import edu.nps.moves.dis7.enumerations.DISPDUType;
+import edu.nps.moves.dis7.enumerations.VariableRecordType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Receives and sends a DataPdu carrying fixed and variable datums through a PduPool, and for comparison receives it
+ * into a new PDU each time.  Run with the gc profiler: poolUnmarshal refills the list elements of the idle PDU, while
+ * poolAcquireAndMarshal, like a sender, gets empty lists back from reset() and adds new elements.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PduPoolBenchmark
+{
+  @Param({"1", "8", "32"})
+  public int datums;
+
+  private final PduPool pool = new PduPool();
+  private ByteBuffer buff;
+
+  @Setup
+  public void setup() throws Exception
+  {
+    DataPdu pdu = new DataPdu();
+    fill(pdu);
+    buff = ByteBuffer.allocate(DirectBufferPool.MAX_PDU_SIZE);
+    pdu.marshal(buff);
+  }
+
+  private void fill(DataPdu pdu)
+  {
+    List<FixedDatum> fixedDatums = pdu.getFixedDatums();
+    List<VariableDatum> variableDatums = pdu.getVariableDatums();
+    for (int i = 0; i < datums; i++) {
+      fixedDatums.add(new FixedDatum().setFixedDatumValue(i));
+      variableDatums.add(new VariableDatum().setVariableDatumID(VariableRecordType.values()[0]).setVariableDatumValue(new byte[12]));
+    }
+  }
+
+  @Benchmark
+  public Pdu poolUnmarshal() throws Exception
+  {
+    buff.clear();
+    Pdu pdu = pool.unmarshal(buff);
+    pool.release(pdu);
+    return pdu;
+  }
+
+  @Benchmark
+  public Pdu decoderUnmarshal() throws Exception
+  {
+    buff.clear();
+    return PduDecoder.decode(buff);
+  }
+
+  @Benchmark
+  public ByteBuffer poolAcquireAndMarshal() throws Exception
+  {
+    DataPdu pdu = (DataPdu) pool.acquire(DISPDUType.DATA);
+    fill(pdu);
+    buff.clear();
+    pdu.marshal(buff);
+    pool.release(pdu);
+    return buff;
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7.benchmarks;
+
+import edu.nps.moves.dis7.SignalPdu;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Marshals and unmarshals SignalPdu audio payloads of 1 KB to 8 KB.  The payload is copied in bulk; the
+ * perElement benchmarks copy the same bytes one at a time, as the marshalling code used to, for comparison.
+ * The largest payload is 8188 bytes because dataLength is a 16-bit count of bits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignalPduBenchmark
+{
+  @Param({"1024", "2048", "4096", "8188"})
+  public int payloadBytes;
+
+  private SignalPdu pdu;
+  private ByteBuffer buff;
+  private byte[] payload;
+
+  @Setup
+  public void setup() throws Exception
+  {
+    payload = new byte[payloadBytes];
+    for (int idx = 0; idx < payload.length; idx++)
+      payload[idx] = (byte) idx;
+    pdu = new SignalPdu();
+    pdu.setData(payload);
+    buff = ByteBuffer.allocate(pdu.getMarshalledSize() + 4);
+    pdu.marshal(buff);
+  }
+
+  @Benchmark
+  public ByteBuffer marshal() throws Exception
+  {
+    buff.clear();
+    pdu.marshal(buff);
+    return buff;
+  }
+
+  @Benchmark
+  public SignalPdu unmarshal() throws Exception
+  {
+    buff.clear();
+    pdu.unmarshal(buff);
+    return pdu;
+  }
+
+  @Benchmark
+  public ByteBuffer marshalPayloadBulk()
+  {
+    buff.clear();
+    buff.put(payload);
+    return buff;
+  }
+
+  @Benchmark
+  public ByteBuffer marshalPayloadPerElement()
+  {
+    buff.clear();
+    for (int idx = 0; idx < payload.length; idx++)
+      buff.put(payload[idx]);
+    return buff;
+  }
+
+  @Benchmark
+  public byte[] unmarshalPayloadBulk()
+  {
+    buff.clear();
+    buff.get(payload);
+    return payload;
+  }
+
+  @Benchmark
+  public byte[] unmarshalPayloadPerElement()
+  {
+    buff.clear();
+    for (int idx = 0; idx < payload.length; idx++)
+      payload[idx] = buff.get();
+    return payload;
+  }
+}
@@ -6,31 +6,40 @@ package edu.nps.moves.dis7;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
-import java.lang.reflect.Method;
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.lang.reflect.InvocationTargetException;
 
 import edu.nps.moves.dis7.enumerations.*;
 
 /**
- * An example approximating a Java enum "superclass". Can't use an interface, because we need the two
- * static methods, which can't go into an interface
+ * An example approximating a Java enum "superclass" over PlatformDomain, MunitionDomain and SupplyDomain, which
+ * implement {@link DomainEnumeration}. Instances are immutable and there is one per enumeration constant, so
+ * {@link #inst} allocates nothing; unmarshalling returns the Domain read rather than changing this one.
  */
 public class Domain
 {
-  private Domain()
+  /** PlatformDomain, MunitionDomain and SupplyDomain are all 8-bit enumerations */
+  public static final int MARSHALLED_SIZE = 1;
+
+  private static final Domain[] PLATFORM_DOMAINS = canonical(PlatformDomain.values());
+  private static final Domain[] MUNITION_DOMAINS = canonical(MunitionDomain.values());
+  private static final Domain[] SUPPLY_DOMAINS   = canonical(SupplyDomain.values());
+
+  private final DomainEnumeration enumInst;
+
+  private Domain(DomainEnumeration enumInst)
   {
+    this.enumInst = enumInst;
   }
 
-  private Object enumInst;
-
-  private Method mSize;
-  private Method marshalBuff;
-  private Method marshalDos;
-  private Method unmarshalBuff;
-  private Method unmarshalDis;
-  private Method getValue;
-  private Method getDescription;
+  /** One Domain per constant, indexed by ordinal */
+  private static Domain[] canonical(DomainEnumeration[] values)
+  {
+    Domain[] domains = new Domain[values.length];
+    for (int idx = 0; idx < values.length; idx++)
+      domains[idx] = new Domain(values[idx]);
+    return domains;
+  }
 
   //@formatter:off
 
@@ -41,7 +50,7 @@ public class Domain
      */
   public static Domain inst(PlatformDomain d)
   {
-    return _inst(d);
+    return PLATFORM_DOMAINS[d.ordinal()];
   }  //  uid 8
 
     /**
@@ -51,7 +60,7 @@ public class Domain
      */
     public static Domain inst(MunitionDomain d)
   {
-    return _inst(d);
+    return MUNITION_DOMAINS[d.ordinal()];
   }  //  uid 14
 
     /**
@@ -61,35 +70,43 @@ public class Domain
      */
     public static Domain inst(SupplyDomain d)
   {
-    return _inst(d);
+    return SUPPLY_DOMAINS[d.ordinal()];
   }  //  uid 600
 
   //@formatter:on
-  private static Domain _inst(Object o)
+
+    /**
+     * The domain enumeration depends on the entity kind: munitions (kind 2) use MunitionDomain, supplies (kind 9)
+     * use SupplyDomain and all other kinds PlatformDomain.
+     * @param kind EntityKind value
+     * @param value domain value
+     * @return the canonical Domain, or null if the value is not defined for the kind
+     */
+    public static Domain forKind(int kind, int value)
   {
-    Domain d = new Domain();
-    d.enumInst = o;
-    d.init();
-    return d;
+    switch (kind) {
+      case 2: {
+        MunitionDomain d = MunitionDomain.getEnumForValue(value);
+        return d == null ? null : inst(d);
+      }
+      case 9: {
+        SupplyDomain d = SupplyDomain.getEnumForValue(value);
+        return d == null ? null : inst(d);
+      }
+      default: {
+        PlatformDomain d = PlatformDomain.getEnumForValue(value);
+        return d == null ? null : inst(d);
+      }
+    }
   }
 
-  private void init()
+    /**
+     *
+     * @return the PlatformDomain, MunitionDomain or SupplyDomain constant
+     */
+    public DomainEnumeration getEnumeration()
   {
-    Class<?> c = enumInst.getClass();
-    try {
-      //@formatter:off
-      marshalBuff = c.getDeclaredMethod("marshal", new Class[]{ByteBuffer.class});
-      marshalDos = c.getDeclaredMethod("marshal", new Class[]{DataOutputStream.class});
-      unmarshalBuff = c.getDeclaredMethod("unmarshalEnum", new Class[]{ByteBuffer.class});
-      unmarshalDis = c.getDeclaredMethod("unmarshalEnum", new Class[]{DataInputStream.class});
-      mSize = c.getDeclaredMethod("getMarshalledSize", (Class[]) null);
-      getValue = c.getDeclaredMethod("getValue", (Class[]) null);
-      getDescription = c.getDeclaredMethod("getDescription", (Class[]) null);
-      //@formatter:on
-    }
-    catch (NoSuchMethodException ex) {
-      System.err.println("Can't find methods in " + c.getSimpleName());
-    }
+    return enumInst;
   }
 
     /**
@@ -98,7 +115,7 @@ public class Domain
      */
     public int getValue()
   {
-    return (Integer) invoke(getValue, null);
+    return enumInst.getValue();
   }
 
     /**
@@ -107,7 +124,7 @@ public class Domain
      */
     public String getDescription()
   {
-    return (String) invoke(getDescription, null);
+    return enumInst.getDescription();
   }
 
   /**
@@ -117,7 +134,7 @@ public class Domain
    */
     public int getMarshalledSize()
     {
-      return (Integer) invoke(mSize, null);
+      return enumInst.getMarshalledSize();
     }
 
     /**
@@ -126,7 +143,12 @@ public class Domain
      */
     public void marshal(DataOutputStream dos)
   {
-    invoke(marshalDos, new Object[]{dos});
+    try {
+      enumInst.marshal(dos);
+    }
+    catch (IOException ex) {
+      throw new RuntimeException("bad marshal", ex);
+    }
   }
 
     /**
@@ -135,46 +157,88 @@ public class Domain
      */
     public void marshal(ByteBuffer buff)
   {
-    invoke(marshalBuff, new Object[]{buff});
+    try {
+      enumInst.marshal(buff);
+    }
+    catch (RuntimeException ex) {
+      throw ex;
+    }
+    catch (Exception ex) {
+      throw new RuntimeException("bad marshal", ex);
+    }
+  }
+
+    /**
+     * Packs into a byte array, as used by the generated marshal(byte[], int).
+     * @param dst array to write into
+     * @param index index of the marshalled value
+     * @return index just past the marshalled value
+     */
+    public int marshal(byte[] dst, int index)
+  {
+    dst[index] = (byte) getValue();
+    return index + MARSHALLED_SIZE;
   }
 
     /**
-     * Deserializes an object from a DataInputStream.
+     * Deserializes a domain of the same enumeration as this one from a DataInputStream.
      * @param dis DataInputStream
      * @see java.io.DataInputStream
      * See <a href="https://en.wikipedia.org/wiki/Marshalling_(computer_science)" target="_blank">https://en.wikipedia.org/wiki/Marshalling_(computer_science)</a>
-     * @return marshalled serialized size in bytes
+     * @return the Domain read, or null if the value is not defined
+     * @throws IOException if the stream fails
      */
-    public int unmarshal(DataInputStream dis)
+    public Domain read(DataInputStream dis) throws IOException
   {
-    Object o = invoke(unmarshalDis, new Object[]{dis});
-    enumInst = o;
-    init();
-    return getMarshalledSize();
+    return forValue(dis.readUnsignedByte());
   }
 
     /**
-     * Deserializes an object from a ByteBuffer.
+     * Deserializes a domain of the same enumeration as this one from a ByteBuffer.
      * See <a href="https://en.wikipedia.org/wiki/Marshalling_(computer_science)" target="_blank">https://en.wikipedia.org/wiki/Marshalling_(computer_science)</a>
-     * @param buff The ByteBuffer at the position to begin writing
-     * @return marshalled serialized size in bytes
+     * @param buff The ByteBuffer at the position to begin reading
+     * @return the Domain read, or null if the value is not defined
      */
-    public int unmarshal(ByteBuffer buff)
+    public Domain read(ByteBuffer buff)
   {
-    Object o = invoke(unmarshalBuff, new Object[]{buff});
-    enumInst = o;
-    init();
-    return getMarshalledSize();
+    return forValue(buff.get() & 0xFF);
   }
 
-  private Object invoke(Method m, Object[] oa)
+    /**
+     * Deserializes from an absolute index without changing the buffer position, as used by the generated views.
+     * @param buff The ByteBuffer holding the marshalled data
+     * @param index absolute index of the marshalled value
+     * @return the Domain read, or null if the value is not defined
+     */
+    public Domain read(ByteBuffer buff, int index)
   {
-    try {
-      return m.invoke(enumInst, oa);
+    return forValue(buff.get(index) & 0xFF);
+  }
+
+    /**
+     * Deserializes from a byte array, as used by the generated unmarshal(byte[], int).
+     * @param src array holding the marshalled data
+     * @param index index of the marshalled value
+     * @return the Domain read, or null if the value is not defined
+     */
+    public Domain read(byte[] src, int index)
+  {
+    return forValue(src[index] & 0xFF);
+  }
+
+  /** The canonical Domain for a value of the same enumeration as this one */
+  private Domain forValue(int value)
+  {
+    if (enumInst instanceof PlatformDomain) {
+      PlatformDomain d = PlatformDomain.getEnumForValue(value);
+      return d == null ? null : inst(d);
     }
-    catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
-      throw new RuntimeException("bad " + m.getName());
+    if (enumInst instanceof MunitionDomain) {
+      MunitionDomain d = MunitionDomain.getEnumForValue(value);
+      return d == null ? null : inst(d);
     }
+    SupplyDomain d = SupplyDomain.getEnumForValue(value);
+    return d == null ? null : inst(d);
   }
 
   @Override
@@ -213,4 +277,10 @@ public class Domain
     final Domain rhs = (Domain) obj;
     return enumInst.equals(rhs.enumInst);
   }
+
+  @Override
+  public int hashCode()
+  {
+    return enumInst.hashCode();
+  }
 }
@@ -5,6 +5,8 @@
 package edu.nps.moves.dis7;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.Objects;
 import edu.nps.moves.dis7.enumerations.*;
 
 /**
@@ -49,7 +51,7 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
    */
   protected byte[] data = new byte[1];  // Wireshark complains if no data
 
-  private byte[] padTo32 = new byte[0]; // pad to 32-bit boundary
+  private int padTo32; // number of pad bytes to 32-bit boundary
 
   /**
    * Constructor
@@ -59,6 +61,27 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
     setPduType(DISPDUType.SIGNAL);
   }
 
+  /**
+   * Restores the values set at construction, reusing nested objects, so that a pooled instance can be filled again
+   */
+  @Override
+  public void reset()
+  {
+    super.reset();
+    header.reset();
+    encodingScheme = 0;
+    tdlType = SignalTDLType.values()[0];
+    sampleRate = 0;
+    dataLength = null;
+    samples = 0;
+    if (data.length == 1)
+      data[0] = 0;
+    else
+      data = new byte[1];
+    padTo32 = 0;
+    setPduType(DISPDUType.SIGNAL);
+  }
+
   /**
    * Returns size of this serialized (marshalled) object in bytes
    * See <a href="https://en.wikipedia.org/wiki/Marshalling_(computer_science)" target="_blank">https://en.wikipedia.org/wiki/Marshalling_(computer_science)</a>
@@ -75,7 +98,7 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
     marshalSize += 2;  // dataLength
     marshalSize += 2;  // samples
     marshalSize += data.length;
-    marshalSize += padTo32.length;
+    marshalSize += Align.padding(marshalSize, 4); // padTo32, known before marshal fills it in
 
     return marshalSize;
   }
@@ -264,10 +287,8 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
       dos.writeShort((dataLength = calculateDataLength()));
 
     dos.writeShort(samples);
-    for (int idx = 0; idx < data.length; idx++) {
-      dos.writeByte(data[idx]);
-    }
-    padTo32 = new byte[Align.to32bits(dos)];
+    dos.write(data);
+    padTo32 = Align.to32bits(dos);
 
   }
 
@@ -292,18 +313,17 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
     sampleRate = dis.readInt();
     uPosition += 4;
     dataLength = (short) dis.readUnsignedShort();
-    int byteLength = (dataLength + 7) / 8;
-    data = new byte[byteLength];
+    int byteLength = ((dataLength & 0xFFFF) + 7) / 8;
+    if (data.length != byteLength)
+      data = new byte[byteLength];
     uPosition += 2;
     samples = (short) dis.readUnsignedShort();
     uPosition += 2;
     
-    for (int idx = 0; idx < byteLength; idx++) {
-      data[idx] = dis.readByte();
-    }
+    dis.readFully(data);
     uPosition += (data.length * 1);
-    padTo32 = new byte[Align.from32bits(uPosition, dis)];
-    //uPosition += padTo32.length;
+    padTo32 = Align.from32bits(uPosition, dis);
+    //uPosition += padTo32;
 
     return getMarshalledSize();
   }
@@ -333,11 +353,8 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
     
     buff.putShort(samples);
 
-    for (int idx = 0; idx < data.length; idx++) {
-      buff.put(data[idx]);
-    }
-    buff.flip(); // will cause BufferOverflowException if we don't flip here
-    padTo32 = new byte[Align.to32bits(buff)];
+    buff.put(data);
+    padTo32 = Align.to32bits(buff);
   }
 
   /**
@@ -360,17 +377,56 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
     tdlType = SignalTDLType.unmarshalEnum(buff);
     sampleRate = buff.getInt();
     dataLength = (short) (buff.getShort() & 0xFFFF);
-    int byteLength = (dataLength+7)/8;
-    data = new byte[byteLength];
+    int byteLength = ((dataLength & 0xFFFF) + 7) / 8;
+    if (data.length != byteLength)
+      data = new byte[byteLength];
     samples = (short) (buff.getShort() & 0xFFFF);
-    for (int idx = 0; idx < byteLength; idx++) {
-      data[idx] = buff.get();
-    }
-    buff.flip(); // will cause BufferUnderflowException if we don't flip here
-    padTo32 = new byte[Align.from32bits(buff)];
+    buff.get(data);
+    padTo32 = Align.from32bits(buff);
     return getMarshalledSize();
   }
 
+  @Override
+  protected int marshalFields(byte[] dst, int offset)
+  {
+    int pos = super.marshalFields(dst, offset);
+    pos = header.marshalFields(dst, pos);
+    BigEndianBytes.putShort(dst, pos, encodingScheme);
+    pos = tdlType.marshal(dst, pos + 2);
+    BigEndianBytes.putInt(dst, pos, sampleRate);
+    pos += 4;
+    if (dataLength == null)
+      dataLength = calculateDataLength();
+    BigEndianBytes.putShort(dst, pos, dataLength);
+    BigEndianBytes.putShort(dst, pos + 2, samples);
+    pos += 4;
+    System.arraycopy(data, 0, dst, pos, data.length);
+    pos += data.length;
+    padTo32 = Align.to32bits(dst, pos);
+    return pos + padTo32;
+  }
+
+  @Override
+  protected int unmarshalFields(byte[] src, int offset)
+  {
+    int pos = super.unmarshalFields(src, offset);
+    pos = header.unmarshalFields(src, pos);
+    encodingScheme = BigEndianBytes.getShort(src, pos);
+    tdlType = SignalTDLType.unmarshalEnum(src, pos + 2);
+    pos += 2 + SignalTDLType.MARSHALLED_SIZE;
+    sampleRate = BigEndianBytes.getInt(src, pos);
+    dataLength = BigEndianBytes.getShort(src, pos + 4);
+    samples = BigEndianBytes.getShort(src, pos + 6);
+    pos += 8;
+    int byteLength = ((dataLength & 0xFFFF) + 7) / 8;
+    if (data.length != byteLength)
+      data = new byte[byteLength];
+    System.arraycopy(src, pos, data, 0, byteLength);
+    pos += byteLength;
+    padTo32 = Align.padding(pos, 4);
+    return pos + padTo32;
+  }
+
   private short calculateDataLength()
   {
     return (short) (data.length * 8);
@@ -412,16 +468,28 @@ public class SignalPdu extends RadioCommunicationsFamilyPdu implements Serializa
       ivarsEqual = false;
     if (!(sampleRate == rhs.sampleRate))
       ivarsEqual = false;
-    if (!(dataLength.equals(rhs.dataLength)))
+    if (!(Objects.equals(dataLength, rhs.dataLength)))
       ivarsEqual = false;
     if (!(samples == rhs.samples))
       ivarsEqual = false;
 
-    for (int idx = 0; idx < 0; idx++) {
-      if (!(data[idx] == rhs.data[idx]))
-        ivarsEqual = false;
-    }
+    if (!(Arrays.equals(data, rhs.data)))
+      ivarsEqual = false;
 
     return ivarsEqual && super.equalsImpl(rhs);
   }
+
+  @Override
+  public int hashCode()
+  {
+    int result = super.hashCode();
+    result = 31 * result + header.hashCode();
+    result = 31 * result + encodingScheme;
+    result = 31 * result + Objects.hashCode(tdlType);
+    result = 31 * result + sampleRate;
+    result = 31 * result + Objects.hashCode(dataLength);
+    result = 31 * result + samples;
+    result = 31 * result + Arrays.hashCode(data);
+    return result;
+  }
 } // end of class
@@ -5,6 +5,8 @@
 package edu.nps.moves.dis7;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.Objects;
 import edu.nps.moves.dis7.enumerations.*;
 
 /**
@@ -28,9 +30,23 @@ public class VariableDatum extends Object implements Serializable
    * field format shall depend on the type of datum as specified by the Variable Datum ID. Variable
    * datums can be any number of bits long.
    */
-  protected byte[] variableDatumValue = new byte[0];
+  protected byte[] variableDatumValue = NO_VALUE;
 
-  private byte[] padding = new byte[0]; // pad to 64-bit boundary
+  private int padding; // number of pad bytes to 64-bit boundary
+
+  private static final byte[] NO_VALUE = new byte[0];
+
+  /**
+   * Restores the values set at construction, so that a pooled instance can be filled again.
+   * The value array is replaced, not cleared, as a caller may still hold the one it passed in.
+   */
+  public void reset()
+  {
+    variableDatumID = VariableRecordType.values()[0];
+    variableDatumLength = null;
+    variableDatumValue = NO_VALUE;
+    padding = 0;
+  }
 
   /**
    * Returns size of this serialized (marshalled) object in bytes
@@ -44,7 +60,7 @@ public class VariableDatum extends Object implements Serializable
     marshalSize += variableDatumID.getMarshalledSize();
     marshalSize += 4;  // variableDatumLength
     marshalSize += variableDatumValue.length;
-    marshalSize += padding.length;
+    marshalSize += padding;
 
     return marshalSize;
   }
@@ -159,11 +175,9 @@ public class VariableDatum extends Object implements Serializable
       else
         dos.writeInt(variableDatumLength = calculateDatumLength());
 
-      for (int idx = 0; idx < variableDatumValue.length; idx++) {
-        dos.writeByte(variableDatumValue[idx]);
-      }
+      dos.write(variableDatumValue);
 
-      padding = new byte[Align.to64bits(dos)];
+      padding = Align.to64bits(dos);
     }
     catch (IOException e) {
       System.err.println(e);
@@ -180,20 +194,33 @@ public class VariableDatum extends Object implements Serializable
    */
   public int unmarshal(DataInputStream dis) throws Exception
   {
-    int uPosition = 0;
+    return unmarshal(0, dis);
+  }
+
+  /**
+   * Deserializes an object from a DataInputStream that has already been read up to the datum, such as a PDU.
+   * The padding is skipped to a 64-bit boundary of the stream, as {@link #marshal(DataOutputStream)} writes it
+   * and the ByteBuffer and byte array methods read it, not to one of the datum.
+   * @param position number of bytes read from the stream before the datum
+   * @param dis DataInputStream
+   * @return marshalled serialized size in bytes
+   * @throws java.lang.Exception if something goes wrong
+   */
+  public int unmarshal(int position, DataInputStream dis) throws Exception
+  {
+    int uPosition = position;
     try {
       variableDatumID = VariableRecordType.unmarshalEnum(dis);
       uPosition += variableDatumID.getMarshalledSize();
       variableDatumLength = dis.readInt();
       int byteLength = (variableDatumLength + 7) / 8;
-      variableDatumValue = new byte[byteLength];
+      if (variableDatumValue.length != byteLength)
+        variableDatumValue = new byte[byteLength];
       uPosition += 4;
-      for (int idx = 0; idx < byteLength; idx++) {
-        variableDatumValue[idx] = dis.readByte();
-      }
-      uPosition += variableDatumLength;
-      padding = new byte[Align.from64bits(uPosition, dis)];
-      //uPosition += padding.length;
+      dis.readFully(variableDatumValue);
+      uPosition += byteLength;
+      padding = Align.from64bits(uPosition, dis);
+      //uPosition += padding;
     }
     catch (Exception e) {
       System.out.println(e);
@@ -218,11 +245,8 @@ public class VariableDatum extends Object implements Serializable
       buff.putInt(variableDatumLength);
     else
       buff.putInt(variableDatumLength = calculateDatumLength());
-    for (int idx = 0; idx < variableDatumLength; idx++) //for(int idx = 0; idx < variableDatumValue.length; idx++)
-    {
-      buff.put(variableDatumValue[idx]);
-    }
-    padding = new byte[Align.to64bits(buff)];
+    buff.put(variableDatumValue);
+    padding = Align.to64bits(buff);
   }
 
   /**
@@ -240,14 +264,92 @@ public class VariableDatum extends Object implements Serializable
     variableDatumID = VariableRecordType.unmarshalEnum(buff);
     variableDatumLength = buff.getInt();
     int byteLength = (variableDatumLength + 7) / 8;
-    variableDatumValue = new byte[byteLength];
-    for (int idx = 0; idx < byteLength; idx++) {
-      variableDatumValue[idx] = buff.get();
-    }
-    padding = new byte[Align.from64bits(buff)];
+    if (variableDatumValue.length != byteLength)
+      variableDatumValue = new byte[byteLength];
+    buff.get(variableDatumValue);
+    padding = Align.from64bits(buff);
     return getMarshalledSize();
   }
 
+  /**
+   * Packs this object into a byte array in network byte order, without a ByteBuffer. The bounds of the whole
+   * marshalled object are checked once, before anything is written.
+   * @param dst array to write into
+   * @param offset index of the first byte to write
+   * @return index just past the last byte written
+   * @throws IndexOutOfBoundsException if the marshalled object does not fit in dst at offset
+   */
+  public int marshal(byte[] dst, int offset)
+  {
+    BigEndianBytes.checkBounds(dst, offset, getMarshalledSize());
+    return marshalFields(dst, offset);
+  }
+
+  /**
+   * Packs the fields into a byte array without checking its bounds first; see {@link #marshal(byte[], int)}
+   * @param dst array to write into
+   * @param offset index of the first byte to write
+   * @return index just past the last byte written
+   */
+  protected int marshalFields(byte[] dst, int offset)
+  {
+    int pos = variableDatumID.marshal(dst, offset);
+    if (variableDatumLength == null)
+      variableDatumLength = calculateDatumLength();
+    BigEndianBytes.putInt(dst, pos, variableDatumLength);
+    pos += 4;
+    System.arraycopy(variableDatumValue, 0, dst, pos, variableDatumValue.length);
+    pos += variableDatumValue.length;
+    padding = Align.to64bits(dst, pos);
+    return pos + padding;
+  }
+
+  /**
+   * Unpacks this object from a byte array in network byte order, without a ByteBuffer.
+   * @param src array holding the marshalled data
+   * @param offset index of the first byte to read
+   * @return index just past the last byte read
+   * @throws IndexOutOfBoundsException if src ends before the marshalled object does
+   */
+  public int unmarshal(byte[] src, int offset)
+  {
+    return unmarshalFields(src, offset);
+  }
+
+  /**
+   * Unpacks the fields from a byte array; see {@link #unmarshal(byte[], int)}
+   * @param src array holding the marshalled data
+   * @param offset index of the first byte to read
+   * @return index just past the last byte read
+   */
+  protected int unmarshalFields(byte[] src, int offset)
+  {
+    variableDatumID = VariableRecordType.unmarshalEnum(src, offset);
+    int pos = offset + VariableRecordType.MARSHALLED_SIZE;
+    variableDatumLength = BigEndianBytes.getInt(src, pos);
+    pos += 4;
+    int byteLength = (variableDatumLength + 7) / 8;
+    if (variableDatumValue.length != byteLength)
+      variableDatumValue = new byte[byteLength];
+    System.arraycopy(src, pos, variableDatumValue, 0, byteLength);
+    pos += byteLength;
+    padding = Align.padding(pos, 8);
+    return pos + padding;
+  }
+
+  /**
+   * Locates the end of a marshalled VariableDatum from its length field, without unmarshalling it.
+   * @param buff buffer holding the marshalled data
+   * @param offset absolute index in buff of the first byte
+   * @return absolute index just past the datum and its padding
+   */
+  public static int skip(java.nio.ByteBuffer buff, int offset)
+  {
+    int pos = offset + VariableRecordType.MARSHALLED_SIZE;
+    pos += 4 + (buff.getInt(pos) + 7) / 8;
+    return pos + Align.padding(pos, 8);
+  }
+
   private int calculateDatumLength()
   {
     return variableDatumValue.length * 8;
@@ -289,12 +391,20 @@ public class VariableDatum extends Object implements Serializable
 
     if (!(variableDatumID == rhs.variableDatumID))
       ivarsEqual = false;
-    if (!(variableDatumLength.equals(rhs.variableDatumLength)))
+    if (!(Objects.equals(variableDatumLength, rhs.variableDatumLength)))
+      ivarsEqual = false;
+    if (!(Arrays.equals(variableDatumValue, rhs.variableDatumValue)))
       ivarsEqual = false;
-    for (int idx = 0; idx < 0; idx++) {
-      if (!(variableDatumValue[idx] == rhs.variableDatumValue[idx]))
-        ivarsEqual = false;
-    }
     return ivarsEqual;
   }
+
+  @Override
+  public int hashCode()
+  {
+    int result = 1;
+    result = 31 * result + Objects.hashCode(variableDatumID);
+    result = 31 * result + Objects.hashCode(variableDatumLength);
+    result = 31 * result + Arrays.hashCode(variableDatumValue);
+    return result;
+  }
 }
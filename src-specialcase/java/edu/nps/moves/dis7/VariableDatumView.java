@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+package edu.nps.moves.dis7;
+
+import edu.nps.moves.dis7.enumerations.*;
+
+/**
+ * Flyweight view of a marshalled {@link VariableDatum}, written by hand to match that class's wire layout:
+ * 32-bit datum ID, 32-bit datum length in bits, the value bytes, then padding to a 64-bit boundary.
+ * Generated views of the datum PDUs use this to walk their variable datum lists.
+ */
+public class VariableDatumView extends DisView
+{
+  @Override
+  public VariableDatumView wrap(java.nio.ByteBuffer buff, int offset)
+  {
+    super.wrap(buff, offset);
+    return this;
+  }
+
+  public VariableRecordType getVariableDatumID()
+  {
+    return VariableRecordType.unmarshalEnum(buff, offset);
+  }
+
+  /**
+   * @return length IN BITS of the datum value
+   */
+  public int getVariableDatumLength()
+  {
+    return buff.getInt(offset + VariableRecordType.MARSHALLED_SIZE);
+  }
+
+  /**
+   * @return absolute index of the first byte of the datum value
+   */
+  public int getVariableDatumValueOffset()
+  {
+    return offset + VariableRecordType.MARSHALLED_SIZE + 4;
+  }
+
+  /**
+   * @param idx byte index within the datum value
+   * @return one byte of the datum value
+   */
+  public byte getVariableDatumValue(int idx)
+  {
+    return buff.get(getVariableDatumValueOffset() + idx);
+  }
+
+  @Override
+  protected int endOffset()
+  {
+    int pos = getVariableDatumValueOffset() + (getVariableDatumLength() + 7) / 8;
+    return pos + padTo(pos, 8);
+  }
+}
@@ -8,8 +8,8 @@ package edu.nps.moves.dis7;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 
 /**
  * Align.java created on Jul 15, 2019
@@ -20,111 +20,142 @@ import java.util.Arrays;
  */
 public class Align
 {
+  /** Source of pad bytes for bulk writes; no pad is longer than 7 bytes */
+  static private final byte[] ZEROS = new byte[8];
+
+  /**
+   * Number of pad bytes needed at a position
+   * @param position byte count or buffer index
+   * @param boundary 2, 4 or 8 bytes
+   * @return pad bytes to reach the next multiple of boundary
+   */
+  static public int padding(int position, int boundary)
+  {
+      return (boundary - position % boundary) % boundary;
+  }
+
   static public int to16bits(ByteBuffer buff)
   {
-      int pad = (2 - buff.position() % 2) % 2;
-      Arrays.stream(new int[pad]).forEach(x->buff.put((byte)0));
-      return pad;
+      return pad(buff, 2);
   }
   
   static public int to16bits(DataOutputStream dos)
   {
-      int pad = (2 - dos.size() % 2) % 2;
-      Arrays.stream(new int[pad]).forEach(x->dosWrite(dos));
-      return pad;
+      return pad(dos, 2);
+  }
+  
+  static public int to16bits(byte[] dst, int index)
+  {
+      return pad(dst, index, 2);
   }
   
   static public int to32bits(ByteBuffer buff)
   {
-      int pad = (4 - buff.position() % 4) % 4;
-      Arrays.stream(new int[pad]).forEach(x->buff.put((byte)0));
-      return pad;
+      return pad(buff, 4);
   }
   
   static public int to32bits(DataOutputStream dos)
   {
-      int pad = (4 - dos.size() % 4) % 4;
-      Arrays.stream(new int[pad]).forEach(x->dosWrite(dos));
-      return pad;
+      return pad(dos, 4);
+  }
+  
+  static public int to32bits(byte[] dst, int index)
+  {
+      return pad(dst, index, 4);
   }
   
   static public int to64bits(ByteBuffer buff)
   {
-      int pad = (8 - buff.position() % 8) % 8;
-      Arrays.stream(new int[pad]).forEach(x->buff.put((byte)0));
-      return pad;
+      return pad(buff, 8);
   }
   
   static public int to64bits(DataOutputStream dos)
   {
-      int pad = (8 - dos.size() % 8) % 8;
-      Arrays.stream(new int[pad]).forEach(x->dosWrite(dos));
-      return pad;
+      return pad(dos, 8);
+  }
+  
+  static public int to64bits(byte[] dst, int index)
+  {
+      return pad(dst, index, 8);
   }
   
   /* ******** Unmarshaling ************* */
   static public int from16bits(ByteBuffer buff)
   {
-      int pad = (2 - buff.position() % 2) % 2;
-      Arrays.stream(new int[pad]).forEach(x->buff.get());
-      return pad;
+      return skip(buff, 2);
   }
   
   static public int from16bits(int position, DataInputStream dis)
   {
-      int pad = (2 - position % 2) % 2;
-      Arrays.stream(new int[pad]).forEach(x->disRead(dis));
-      return pad;
+      return skip(position, dis, 2);
   }
   
   static public int from32bits(ByteBuffer buff)
   {
-      int pad = (4 - buff.position() % 4) % 4;
-      Arrays.stream(new int[pad]).forEach(x->buff.get());
-      return pad;
+      return skip(buff, 4);
   }
   
   static public int from32bits(int position, DataInputStream dis)
   {
-      int pad = (4 - position % 4) % 4;
-      Arrays.stream(new int[pad]).forEach(x->disRead(dis));
-      return pad;
+      return skip(position, dis, 4);
   }
   
   static public int from64bits(ByteBuffer buff)
   {
-      int pad = (8 - buff.position() % 8) % 8;
-      Arrays.stream(new int[pad]).forEach(x->buff.get());
-      return pad;
+      return skip(buff, 8);
   }
   
   static public int from64bits(int position, DataInputStream dis)
   {
-      int pad = (8 - position % 8) % 8;
-      Arrays.stream(new int[pad]).forEach(x->disRead(dis));
+      return skip(position, dis, 8);
+  }
+
+  static private int pad(ByteBuffer buff, int boundary)
+  {
+      int pad = padding(buff.position(), boundary);
+      buff.put(ZEROS, 0, pad);
       return pad;
   }
 
-  static private void disRead(DataInputStream dis)
+  static private int pad(DataOutputStream dos, int boundary)
   {
+      int pad = padding(dos.size(), boundary);
       try {
-          dis.read();
+          dos.write(ZEROS, 0, pad);
       }
       catch(IOException ex) {
           ex.printStackTrace(System.err);
           throw new RuntimeException("IOException ex: "+ex.getLocalizedMessage());
       }
+      return pad;
   }
-  
-  static private void dosWrite(DataOutputStream dos)
+
+  static private int pad(byte[] dst, int index, int boundary)
   {
-     try {
-          dos.writeByte(0);
+      int pad = padding(index, boundary);
+      System.arraycopy(ZEROS, 0, dst, index, pad);
+      return pad;
+  }
+
+  static private int skip(ByteBuffer buff, int boundary)
+  {
+      int pad = padding(buff.position(), boundary);
+      if (pad > buff.remaining())
+          throw new BufferUnderflowException();
+      buff.position(buff.position() + pad);
+      return pad;
+  }
+
+  static private int skip(int position, DataInputStream dis, int boundary)
+  {
+      int pad = padding(position, boundary);
+      try {
+          dis.skipBytes(pad);
       }
       catch(IOException ex) {
           ex.printStackTrace(System.err);
           throw new RuntimeException("IOException ex: "+ex.getLocalizedMessage());
       }
-      
+      return pad;
   }
 }
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+/**
+ * BigEndianBytes.java created on Oct 17, 2026
+ * Reads and writes primitives in network byte order at an index of a byte array, for the generated
+ * marshal(byte[], int) and unmarshal(byte[], int) methods.  Unlike a ByteBuffer there is no position to update and
+ * no limit to check on each access; the generated methods check the bounds of a whole record once instead.
+ * Every multi-byte access of those methods goes through here, so that on a Java 9 or later baseline these bodies can
+ * become MethodHandles.byteArrayViewVarHandle(..., ByteOrder.BIG_ENDIAN) accesses without touching the generator.
+ */
+public final class BigEndianBytes
+{
+  private BigEndianBytes()
+  {
+  }
+
+  /**
+   * @param array array to be read or written
+   * @param offset index of the first byte
+   * @param length number of bytes from offset
+   * @throws IndexOutOfBoundsException if the bytes do not all lie within the array
+   */
+  public static void checkBounds(byte[] array, int offset, int length)
+  {
+    if (offset < 0 || length < 0 || offset > array.length - length)
+      throw new IndexOutOfBoundsException("bytes " + offset + " to " + ((long) offset + length) + " of a " + array.length + " byte array");
+  }
+
+  public static void putShort(byte[] dst, int index, short value)
+  {
+    dst[index]     = (byte) (value >>> 8);
+    dst[index + 1] = (byte) value;
+  }
+
+  public static void putInt(byte[] dst, int index, int value)
+  {
+    dst[index]     = (byte) (value >>> 24);
+    dst[index + 1] = (byte) (value >>> 16);
+    dst[index + 2] = (byte) (value >>> 8);
+    dst[index + 3] = (byte) value;
+  }
+
+  public static void putLong(byte[] dst, int index, long value)
+  {
+    putInt(dst, index, (int) (value >>> 32));
+    putInt(dst, index + 4, (int) value);
+  }
+
+  public static void putFloat(byte[] dst, int index, float value)
+  {
+    putInt(dst, index, Float.floatToRawIntBits(value));
+  }
+
+  public static void putDouble(byte[] dst, int index, double value)
+  {
+    putLong(dst, index, Double.doubleToRawLongBits(value));
+  }
+
+  public static short getShort(byte[] src, int index)
+  {
+    return (short) ((src[index] << 8) | (src[index + 1] & 0xFF));
+  }
+
+  public static int getInt(byte[] src, int index)
+  {
+    return (src[index] << 24) | ((src[index + 1] & 0xFF) << 16) | ((src[index + 2] & 0xFF) << 8) | (src[index + 3] & 0xFF);
+  }
+
+  public static long getLong(byte[] src, int index)
+  {
+    return ((long) getInt(src, index) << 32) | (getInt(src, index + 4) & 0xFFFFFFFFL);
+  }
+
+  public static float getFloat(byte[] src, int index)
+  {
+    return Float.intBitsToFloat(getInt(src, index));
+  }
+
+  public static double getDouble(byte[] src, int index)
+  {
+    return Double.longBitsToDouble(getLong(src, index));
+  }
+}
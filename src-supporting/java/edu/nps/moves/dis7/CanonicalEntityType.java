@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import edu.nps.moves.dis7.enumerations.Country;
+import edu.nps.moves.dis7.enumerations.EntityKind;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared, immutable entity types, one per distinct set of field values.  An exercise uses a few hundred entity types
+ * at most, so the PDUs received can all refer to the same few instances rather than each unmarshalling into its own,
+ * and two interned entity types are equal exactly when they are the same object.  The setters, reset and unmarshal
+ * throw UnsupportedOperationException; set a new EntityType on the PDU instead.
+ * Entity types are keyed on their marshalled 8 bytes read as a long (kind, domain, country, category, subcategory,
+ * specific, extra from most significant byte down), the same packing as EntityTypeFactory.packedKey().
+ * Lookups do not lock or allocate once an entity type has been seen.
+ */
+public class CanonicalEntityType extends EntityType
+{
+  /** Past this many distinct entity types, new ones are returned without being kept */
+  static final int MAX_INTERNED = 1 << 16;
+
+  private static final Object lock = new Object();
+  private static volatile AtomicReferenceArray<CanonicalEntityType> table = new AtomicReferenceArray<>(1024);
+  private static int interned;
+
+  /** The entity type of a newly constructed EntityType */
+  public static final CanonicalEntityType DEFAULT = intern(new EntityType());
+
+  private final long packedKey;
+
+  private CanonicalEntityType(long packedKey)
+  {
+    this.packedKey = packedKey;
+    int kind = (int) (packedKey >>> 56);
+    entityKind = EntityKind.getEnumForValue(kind);
+    domain = Domain.forKind(kind, (int) (packedKey >>> 48) & 0xFF);
+    country = Country.getEnumForValue((int) (packedKey >>> 32) & 0xFFFF);
+    category = (byte) (packedKey >>> 24);
+    subCategory = (byte) (packedKey >>> 16);
+    specific = (byte) (packedKey >>> 8);
+    extra = (byte) packedKey;
+  }
+
+  /**
+   * @param packedKey entity type fields in marshalled order, as read by ByteBuffer.getLong()
+   * @return the shared instance with those field values
+   */
+  public static CanonicalEntityType intern(long packedKey)
+  {
+    AtomicReferenceArray<CanonicalEntityType> slots = table;
+    int mask = slots.length() - 1;
+    for (int slot = slot(packedKey, mask);; slot = (slot + 1) & mask) {
+      CanonicalEntityType type = slots.get(slot);
+      if (type == null)
+        return add(packedKey);
+      if (type.packedKey == packedKey)
+        return type;
+    }
+  }
+
+  /**
+   * @param type entity type of interest
+   * @return the shared instance with the same field values
+   */
+  public static CanonicalEntityType intern(EntityType type)
+  {
+    if (type instanceof CanonicalEntityType)
+      return (CanonicalEntityType) type;
+    return intern(packedKey(type));
+  }
+
+  /**
+   * Deserializes a shared entity type from a DataInputStream
+   * @param dis DataInputStream at a marshalled EntityType
+   * @return the shared instance read
+   * @throws IOException if the stream fails
+   */
+  public static CanonicalEntityType read(DataInputStream dis) throws IOException
+  {
+    return intern(dis.readLong());
+  }
+
+  /**
+   * Deserializes a shared entity type from a ByteBuffer
+   * @param buff The ByteBuffer at the position to begin reading
+   * @return the shared instance read
+   */
+  public static CanonicalEntityType read(ByteBuffer buff)
+  {
+    return intern(buff.getLong());
+  }
+
+  /**
+   * Deserializes from an absolute index without changing the buffer position, as used by the generated views
+   * @param buff The ByteBuffer holding the marshalled data
+   * @param index absolute index of the marshalled EntityType
+   * @return the shared instance read
+   */
+  public static CanonicalEntityType read(ByteBuffer buff, int index)
+  {
+    return intern(buff.getLong(index));
+  }
+
+  /**
+   * Deserializes from a byte array, as used by the generated unmarshal(byte[], int)
+   * @param src array holding the marshalled data
+   * @param index index of the marshalled EntityType
+   * @return the shared instance read
+   */
+  public static CanonicalEntityType read(byte[] src, int index)
+  {
+    return intern(BigEndianBytes.getLong(src, index));
+  }
+
+  /**
+   * @param type entity type of interest
+   * @return the fields of the entity type packed in marshalled order
+   */
+  public static long packedKey(EntityType type)
+  {
+    if (type instanceof CanonicalEntityType)
+      return ((CanonicalEntityType) type).packedKey;
+    return (long) (type.getEntityKind().getValue() & 0xFF) << 56 | (long) (type.getDomain().getValue() & 0xFF) << 48
+         | (long) (type.getCountry().getValue() & 0xFFFF) << 32 | (long) (type.getCategory() & 0xFF) << 24
+         | (type.getSubCategory() & 0xFF) << 16 | (type.getSpecific() & 0xFF) << 8 | (type.getExtra() & 0xFF);
+  }
+
+  /**
+   * @return the fields of this entity type packed in marshalled order
+   */
+  public long getPackedKey()
+  {
+    return packedKey;
+  }
+
+  private static int slot(long key, int mask)
+  {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32) & mask;
+  }
+
+  private static CanonicalEntityType add(long packedKey)
+  {
+    synchronized (lock) {
+      AtomicReferenceArray<CanonicalEntityType> slots = table;
+      int mask = slots.length() - 1;
+      int slot = slot(packedKey, mask);
+      for (CanonicalEntityType type; (type = slots.get(slot)) != null; slot = (slot + 1) & mask)
+        if (type.packedKey == packedKey)
+          return type; // added by another thread
+      CanonicalEntityType type = new CanonicalEntityType(packedKey);
+      if (interned >= MAX_INTERNED)
+        return type;
+      if (2 * (interned + 1) > slots.length()) { // keep the table at most half full
+        slots = grow(slots);
+        mask = slots.length() - 1;
+        for (slot = slot(packedKey, mask); slots.get(slot) != null; slot = (slot + 1) & mask)
+          ;
+      }
+      slots.set(slot, type);
+      interned++;
+      table = slots;
+      return type;
+    }
+  }
+
+  private static AtomicReferenceArray<CanonicalEntityType> grow(AtomicReferenceArray<CanonicalEntityType> slots)
+  {
+    AtomicReferenceArray<CanonicalEntityType> larger = new AtomicReferenceArray<>(slots.length() * 2);
+    int mask = larger.length() - 1;
+    for (int idx = 0; idx < slots.length(); idx++) {
+      CanonicalEntityType type = slots.get(idx);
+      if (type == null)
+        continue;
+      int slot = slot(type.packedKey, mask);
+      while (larger.get(slot) != null)
+        slot = (slot + 1) & mask;
+      larger.set(slot, type);
+    }
+    return larger;
+  }
+
+  /** Serialization keeps one instance per entity type */
+  private Object readResolve()
+  {
+    return intern(packedKey);
+  }
+
+  @Override
+  public EntityType setEntityKind(EntityKind pEntityKind)
+  {
+    throw immutable();
+  }
+
+  @Override
+  public EntityType setDomain(Domain pDomain)
+  {
+    throw immutable();
+  }
+
+  @Override
+  public EntityType setCountry(Country pCountry)
+  {
+    throw immutable();
+  }
+
+  @Override
+  public EntityType setCategory(byte pCategory)
+  {
+    throw immutable();
+  }
+
+  @Override
+  public EntityType setSubCategory(byte pSubCategory)
+  {
+    throw immutable();
+  }
+
+  @Override
+  public EntityType setSpecific(byte pSpecific)
+  {
+    throw immutable();
+  }
+
+  @Override
+  public EntityType setExtra(byte pExtra)
+  {
+    throw immutable();
+  }
+
+  @Override
+  public void reset()
+  {
+    throw immutable();
+  }
+
+  @Override
+  public int unmarshal(DataInputStream dis) throws Exception
+  {
+    throw immutable();
+  }
+
+  @Override
+  public int unmarshal(ByteBuffer buff) throws Exception
+  {
+    throw immutable();
+  }
+
+  @Override
+  protected int unmarshalFields(byte[] src, int offset)
+  {
+    throw immutable();
+  }
+
+  private static UnsupportedOperationException immutable()
+  {
+    return new UnsupportedOperationException("CanonicalEntityType is shared and cannot be changed; set a new EntityType");
+  }
+
+  /*
+   * An interned entity type is equal to any EntityType with the same field values.
+   */
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj)
+      return true;
+
+    if (!(obj instanceof EntityType))
+      return false;
+
+    return equalsImpl(obj);
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * DirectBufferPool.java created on Oct 17, 2026
+ * Pool of direct ByteBuffers for sending PDUs.  Each buffer holds the largest PDU there can be, so a sender marshals
+ * straight into one with {@link #marshal(Pdu)} and hands it to DatagramChannel.send, which writes a direct buffer
+ * without copying it, then gives it back with {@link #release(ByteBuffer)}.  In steady state nothing is allocated
+ * per PDU sent.  Direct buffers are costly to create and are freed only when collected, hence the pool.
+ * Not thread safe, like PduPool; use one pool per sending thread, for example from a ThreadLocal.
+ */
+public class DirectBufferPool
+{
+  /** Largest marshalled PDU, the most the 16-bit length field of the PDU header can hold */
+  public static final int MAX_PDU_SIZE = 0xFFFF;
+
+  private final ArrayDeque<ByteBuffer> idle = new ArrayDeque<>();
+
+  /**
+   * Take an empty buffer of {@link #MAX_PDU_SIZE} bytes
+   * @return an idle buffer, cleared, or a new one if none is idle
+   */
+  public ByteBuffer acquire()
+  {
+    ByteBuffer buff = idle.poll();
+    if (buff == null)
+      return ByteBuffer.allocateDirect(MAX_PDU_SIZE);
+    buff.clear();
+    return buff;
+  }
+
+  /**
+   * Hand a buffer back for reuse; the caller must not use it afterwards
+   * @param buff buffer obtained from this pool
+   */
+  public void release(ByteBuffer buff)
+  {
+    idle.push(buff);
+  }
+
+  /**
+   * Marshal a PDU into a buffer from the pool
+   * @param pdu PDU to send
+   * @return buffer with position 0 and limit at the end of the PDU, ready to send; release it once sent
+   * @throws Exception ByteBuffer-generated exception
+   */
+  public ByteBuffer marshal(Pdu pdu) throws Exception
+  {
+    ByteBuffer buff = acquire();
+    try {
+      buff.limit(pdu.marshalTo(buff, 0));
+    }
+    catch (Exception e) {
+      release(buff);
+      throw e;
+    }
+    return buff;
+  }
+}
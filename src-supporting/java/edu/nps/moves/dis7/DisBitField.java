@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * DisBitField.java created on Oct 17, 2026
+ * Primitive-backed alternative to {@link DisBitSet} for bitfields of up to 64 bits.  The bits are held in a single
+ * long, fields are read and written with mask and shift, and marshalling writes the value in network byte order
+ * with one put of the matching width.  Nothing is allocated on marshal or unmarshal.
+ * Bit numbering is the same as DisBitSet: bit 0 is the least significant bit of the marshalled value.
+ */
+public abstract class DisBitField implements Marshaller
+{
+    private final int bitLength;
+    private final int byteLength;
+    private final long lengthMask;
+    private long bits;
+
+    public DisBitField(int len)
+    {
+        if (len < 1 || len > Long.SIZE)
+            throw new IllegalArgumentException("DisBitField length must be 1 to 64 bits, not " + len);
+        bitLength = len;
+        byteLength = (bitLength + Byte.SIZE - 1) / Byte.SIZE;
+        lengthMask = calculateLongMask(byteLength * Byte.SIZE);
+    }
+
+    protected static int calculateMask(int length)
+    {
+        return (int) calculateLongMask(length);
+    }
+
+    protected static long calculateLongMask(int length)
+    {
+        return length >= Long.SIZE ? -1L : (1L << length) - 1;
+    }
+
+    protected void setbits(int pos, int len, long val)
+    {
+        long mask = calculateLongMask(len) << pos;
+        bits = ((bits & ~mask) | ((val << pos) & mask)) & lengthMask;
+    }
+
+    protected long getbits(int pos, int len)
+    {
+        return (bits >>> pos) & calculateLongMask(len);
+    }
+
+    /**
+     * @param bitIndex bit number, 0 being least significant
+     * @return true if the bit is set
+     */
+    public boolean get(int bitIndex)
+    {
+        return ((bits >>> bitIndex) & 1L) != 0;
+    }
+
+    /**
+     * @return the whole bitfield as an unsigned value
+     */
+    public long toLong()
+    {
+        return bits;
+    }
+
+    /**
+     * Clears every bit, as after construction
+     */
+    public void reset()
+    {
+        bits = 0;
+    }
+
+    /**
+     * @return bit width declared for this bitfield
+     */
+    public int getBitLength()
+    {
+        return bitLength;
+    }
+
+  /**
+   * Returns size of this serialized (marshalled) object in bytes
+   * See <a href="https://en.wikipedia.org/wiki/Marshalling_(computer_science)" target="_blank">https://en.wikipedia.org/wiki/Marshalling_(computer_science)</a>
+   * @return serialized size in bytes
+   */
+    @Override
+    public int getMarshalledSize()
+    {
+        return byteLength;
+    }
+
+    @Override
+    public void marshal(DataOutputStream dos)
+    {
+        try {
+            switch (byteLength) {
+                case 1:
+                    dos.writeByte((int) bits);
+                    break;
+                case 2:
+                    dos.writeShort((int) bits);
+                    break;
+                case 4:
+                    dos.writeInt((int) bits);
+                    break;
+                case 8:
+                    dos.writeLong(bits);
+                    break;
+                default:
+                    for (int i = byteLength - 1; i >= 0; i--)
+                        dos.writeByte((int) (bits >>> (i * Byte.SIZE)));
+            }
+        }
+        catch (IOException ex) {
+            System.out.println(ex.getClass().getSimpleName() + ": " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void marshal(ByteBuffer buff)
+    {
+        switch (byteLength) {
+            case 1:
+                buff.put((byte) bits);
+                break;
+            case 2:
+                buff.putShort((short) bits);
+                break;
+            case 4:
+                buff.putInt((int) bits);
+                break;
+            case 8:
+                buff.putLong(bits);
+                break;
+            default:
+                for (int i = byteLength - 1; i >= 0; i--)
+                    buff.put((byte) (bits >>> (i * Byte.SIZE)));
+        }
+    }
+
+    /**
+     * Deserializes an object from a DataInputStream.
+     * @param dis DataInputStream
+     * @see java.io.DataInputStream
+     * See <a href="https://en.wikipedia.org/wiki/Marshalling_(computer_science)" target="_blank">https://en.wikipedia.org/wiki/Marshalling_(computer_science)</a>
+     * @return marshalled serialized size in bytes
+     */
+    @Override
+    public int unmarshal(DataInputStream dis)
+    {
+        try {
+            switch (byteLength) {
+                case 1:
+                    bits = dis.readUnsignedByte();
+                    break;
+                case 2:
+                    bits = dis.readUnsignedShort();
+                    break;
+                case 4:
+                    bits = dis.readInt() & 0xFFFFFFFFL;
+                    break;
+                case 8:
+                    bits = dis.readLong();
+                    break;
+                default:
+                    long val = 0;
+                    for (int i = 0; i < byteLength; i++)
+                        val = (val << Byte.SIZE) | dis.readUnsignedByte();
+                    bits = val;
+            }
+        }
+        catch (IOException ex) {
+            showError(ex);
+        }
+        return getMarshalledSize();
+    }
+
+    @Override
+    public int unmarshal(ByteBuffer buff)
+    {
+        switch (byteLength) {
+            case 1:
+                bits = buff.get() & 0xFFL;
+                break;
+            case 2:
+                bits = buff.getShort() & 0xFFFFL;
+                break;
+            case 4:
+                bits = buff.getInt() & 0xFFFFFFFFL;
+                break;
+            case 8:
+                bits = buff.getLong();
+                break;
+            default:
+                long val = 0;
+                for (int i = 0; i < byteLength; i++)
+                    val = (val << Byte.SIZE) | (buff.get() & 0xFFL);
+                bits = val;
+        }
+        return getMarshalledSize();
+    }
+
+    /**
+     * Unpacks from an absolute index without changing the buffer position, as used by the generated views.
+     * @param buff The ByteBuffer holding the marshalled data
+     * @param index absolute index of the marshalled bitfield
+     * @return marshalled serialized size in bytes
+     */
+    public int unmarshal(ByteBuffer buff, int index)
+    {
+        switch (byteLength) {
+            case 1:
+                bits = buff.get(index) & 0xFFL;
+                break;
+            case 2:
+                bits = buff.getShort(index) & 0xFFFFL;
+                break;
+            case 4:
+                bits = buff.getInt(index) & 0xFFFFFFFFL;
+                break;
+            case 8:
+                bits = buff.getLong(index);
+                break;
+            default:
+                long val = 0;
+                for (int i = 0; i < byteLength; i++)
+                    val = (val << Byte.SIZE) | (buff.get(index + i) & 0xFFL);
+                bits = val;
+        }
+        return getMarshalledSize();
+    }
+
+    /**
+     * Packs into a byte array, as used by the generated marshal(byte[], int).
+     * @param dst array to write into
+     * @param index index of the marshalled bitfield
+     * @return index just past the marshalled bitfield
+     */
+    public int marshal(byte[] dst, int index)
+    {
+        switch (byteLength) {
+            case 1:
+                dst[index] = (byte) bits;
+                break;
+            case 2:
+                BigEndianBytes.putShort(dst, index, (short) bits);
+                break;
+            case 4:
+                BigEndianBytes.putInt(dst, index, (int) bits);
+                break;
+            case 8:
+                BigEndianBytes.putLong(dst, index, bits);
+                break;
+            default:
+                for (int i = 0; i < byteLength; i++)
+                    dst[index + i] = (byte) (bits >>> ((byteLength - 1 - i) * Byte.SIZE));
+        }
+        return index + byteLength;
+    }
+
+    /**
+     * Unpacks from a byte array, as used by the generated unmarshal(byte[], int).
+     * @param src array holding the marshalled data
+     * @param index index of the marshalled bitfield
+     * @return index just past the marshalled bitfield
+     */
+    public int unmarshal(byte[] src, int index)
+    {
+        switch (byteLength) {
+            case 1:
+                bits = src[index] & 0xFFL;
+                break;
+            case 2:
+                bits = BigEndianBytes.getShort(src, index) & 0xFFFFL;
+                break;
+            case 4:
+                bits = BigEndianBytes.getInt(src, index) & 0xFFFFFFFFL;
+                break;
+            case 8:
+                bits = BigEndianBytes.getLong(src, index);
+                break;
+            default:
+                long val = 0;
+                for (int i = 0; i < byteLength; i++)
+                    val = (val << Byte.SIZE) | (src[index + i] & 0xFFL);
+                bits = val;
+        }
+        return index + byteLength;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        return bits == ((DisBitField) obj).bits;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(bits);
+    }
+
+    /**
+     * Same format as {@link java.util.BitSet#toString()}: the indices of the set bits, e.g. "{0, 3}"
+     * @return set bit list
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("{");
+        long b = bits;
+        while (b != 0) {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(Long.numberOfTrailingZeros(b));
+            b &= b - 1;
+        }
+        return sb.append('}').toString();
+    }
+
+    private void showError(Throwable ex)
+    {
+        System.err.println(ex.getClass().getSimpleName() + ": " + ex.getMessage());
+    }
+}
@@ -60,6 +60,14 @@ public abstract class DisBitSet extends BitSet implements Marshaller
         }
     }
 
+    /**
+     * Clears every bit, as after construction
+     */
+    public void reset()
+    {
+        clear();
+    }
+
   /**
    * Returns size of this serialized (marshalled) object in bytes
    * See <a href="https://en.wikipedia.org/wiki/Marshalling_(computer_science)" target="_blank">https://en.wikipedia.org/wiki/Marshalling_(computer_science)</a>
@@ -130,6 +138,47 @@ public abstract class DisBitSet extends BitSet implements Marshaller
         return getMarshalledSize();
     }
 
+    /**
+     * Unpacks from an absolute index without changing the buffer position, as used by the generated views.
+     * @param buff The ByteBuffer holding the marshalled data
+     * @param index absolute index of the marshalled bitfield
+     * @return marshalled serialized size in bytes
+     */
+    public int unmarshal(ByteBuffer buff, int index)
+    {
+        byte[] ba = new byte[byteLength];
+        for (int i = 0; i < byteLength; i++)
+            ba[i] = buff.get(index + i);
+        unmarshalCommon(ba);
+
+        return getMarshalledSize();
+    }
+
+    /**
+     * Packs into a byte array, as used by the generated marshal(byte[], int).
+     * @param dst array to write into
+     * @param index index of the marshalled bitfield
+     * @return index just past the marshalled bitfield
+     */
+    public int marshal(byte[] dst, int index)
+    {
+        byte[] ba = marshallCommon();
+        System.arraycopy(ba, 0, dst, index, ba.length);
+        return index + ba.length;
+    }
+
+    /**
+     * Unpacks from a byte array, as used by the generated unmarshal(byte[], int).
+     * @param src array holding the marshalled data
+     * @param index index of the marshalled bitfield
+     * @return index just past the marshalled bitfield
+     */
+    public int unmarshal(byte[] src, int index)
+    {
+        unmarshalCommon(Arrays.copyOfRange(src, index, index + byteLength));
+        return index + byteLength;
+    }
+
     private void unmarshalCommon(byte[] ba)
     {
         reverse(ba); // big endian to little
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DisView.java created on Oct 17, 2026
+ * Base class of the generated XxxView flyweights.  A view wraps a ByteBuffer plus the absolute index of a marshalled
+ * record and reads each field on demand with absolute gets, so nothing is unmarshalled or allocated.  A view may be
+ * re-wrapped over any number of records; it never changes the buffer's position or limit.
+ */
+public abstract class DisView
+{
+    protected ByteBuffer buff;
+    protected int offset;
+
+    /**
+     * Point this view at a marshalled record
+     * @param buff buffer holding the marshalled data
+     * @param offset absolute index in buff of the first byte of the record
+     * @return this view
+     */
+    public DisView wrap(ByteBuffer buff, int offset)
+    {
+        this.buff = buff;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @return buffer this view currently reads from
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buff;
+    }
+
+    /**
+     * @return absolute index of the first byte of the record in the buffer
+     */
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * @return absolute index just past the last byte of the record
+     */
+    protected int endOffset()
+    {
+        return offset;
+    }
+
+  /**
+   * Returns size of the marshalled record in bytes, walking variable-length content as needed
+   * @return serialized size in bytes
+   */
+    public int getMarshalledSize()
+    {
+        return endOffset() - offset;
+    }
+
+    /**
+     * Padding that Align.toNNbits() writes at this absolute index
+     * @param index absolute buffer index
+     * @param boundary 2, 4 or 8 bytes
+     * @return number of pad bytes
+     */
+    protected static int padTo(int index, int boundary)
+    {
+        return Align.padding(index, boundary);
+    }
+}
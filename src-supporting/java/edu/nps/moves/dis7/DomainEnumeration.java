@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Interface injected into the PlatformDomain, MunitionDomain and SupplyDomain enumerations so that
+ * {@link Domain} can call them directly instead of by reflection
+ */
+public interface DomainEnumeration
+{
+    /**
+     *
+     * @return the value of this domain
+     */
+    int getValue();
+
+    /**
+     *
+     * @return the description of this domain
+     */
+    String getDescription();
+
+    /**
+     *
+     * @return serialized size in bytes
+     */
+    int getMarshalledSize();
+
+    /**
+     *
+     * @param dos DataOutputStream
+     * @throws IOException if the stream fails
+     */
+    void marshal(DataOutputStream dos) throws IOException;
+
+    /**
+     *
+     * @param buff The ByteBuffer at the position to begin writing
+     * @throws Exception ByteBuffer-generated exception
+     */
+    void marshal(ByteBuffer buff) throws Exception;
+}
@@ -10,4 +10,36 @@ package edu.nps.moves.dis7;
  * Marker interface to polymorphize Entity Capabilities (uid 55) 
  */
 public interface EntityCapabilities extends Marshaller
-{}
+{
+  /** All uid 55 capabilities records are 32-bit bitfields */
+  int MARSHALLED_SIZE = 4;
+
+  /**
+   * Unpacks from an absolute index without changing the buffer position, as used by the generated views.
+   * @param buff The ByteBuffer holding the marshalled data
+   * @param index absolute index of the marshalled bitfield
+   * @return marshalled serialized size in bytes
+   */
+  int unmarshal(java.nio.ByteBuffer buff, int index);
+
+  /**
+   * Packs into a byte array, as used by the generated marshal(byte[], int).
+   * @param dst array to write into
+   * @param index index of the marshalled bitfield
+   * @return index just past the marshalled bitfield
+   */
+  int marshal(byte[] dst, int index);
+
+  /**
+   * Unpacks from a byte array, as used by the generated unmarshal(byte[], int).
+   * @param src array holding the marshalled data
+   * @param index index of the marshalled bitfield
+   * @return index just past the marshalled bitfield
+   */
+  int unmarshal(byte[] src, int index);
+
+  /**
+   * Clears every capability bit so a pooled record can be filled again
+   */
+  void reset();
+}
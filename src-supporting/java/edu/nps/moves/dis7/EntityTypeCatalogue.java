@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of the entityTypeCatalogue.bin file written by the entity type generator, which lists every SISO
+ * entity type by packed key (kind, domain, country, category, subcategory, specific and extra, as
+ * edu.nps.moves.dis7.entities.EntityTypeFactory.packedKey() packs them), uid and description.  Lookups are binary
+ * searches of the file itself, so no class per entity type need be loaded.  A catalogue file is memory-mapped; a
+ * catalogue on the classpath inside a jar is read into a heap buffer once.
+ * The catalogue also holds a trie over kind, domain, country, category, subcategory and specific, which
+ * {@link #forEachMatch(int[], int[], Visitor)} walks to find, for example, all US air platforms without looking at
+ * any other entity type and without allocating.
+ * Instances are immutable and may be shared between threads.
+ */
+public class EntityTypeCatalogue
+{
+  /** "ETC1" */
+  public static final int MAGIC = 0x45544331;
+  /** Classpath resource written by the generator beside the entity classes */
+  public static final String RESOURCE = "/edu/nps/moves/dis7/entities/entityTypeCatalogue.bin";
+
+  /** Matches any value of a field in {@link #forEachMatch(int, int, int, int, int, int, Visitor)} */
+  public static final int ANY = -1;
+
+  /** Trie levels, in key order */
+  public static final int KIND = 0, DOMAIN = 1, COUNTRY = 2, CATEGORY = 3, SUBCATEGORY = 4, SPECIFIC = 5;
+  private static final int TRIE_LEVELS = 6;
+  private static final int[] LEVEL_MAXIMUMS = {0xFF, 0xFF, 0xFFFF, 0xFF, 0xFF, 0xFF};
+
+  /** Receives the records matched by a trie search */
+  public interface Visitor
+  {
+    /**
+     * @param index record number of a matching entity type; see {@link EntityTypeCatalogue#getUid(int)}
+     */
+    void visit(int index);
+  }
+
+  private static final int HEADER_SIZE = 16;
+  private static final int RECORD_SIZE = 16;
+  private static final int UID_INDEX_ENTRY_SIZE = 8;
+
+  private static EntityTypeCatalogue defaultCatalogue;
+
+  private final ByteBuffer buff;
+  private final int count;
+  private final int uidIndexStart;
+  private final int stringTableStart;
+  /** Per trie level, node field values (unsigned) and the first child of each node, plus one past the last */
+  private final char[][] trieValues = new char[TRIE_LEVELS][];
+  private final int[][] trieFirstChild = new int[TRIE_LEVELS][];
+
+  private EntityTypeCatalogue(ByteBuffer buff)
+  {
+    this.buff = buff.asReadOnlyBuffer(); // big-endian, absolute reads only
+    if (buff.getInt(0) != MAGIC)
+      throw new IllegalArgumentException("not an entity type catalogue");
+    count = buff.getInt(4);
+    uidIndexStart = HEADER_SIZE + count * RECORD_SIZE;
+    stringTableStart = buff.getInt(8);
+    if (stringTableStart != uidIndexStart + count * UID_INDEX_ENTRY_SIZE || stringTableStart > buff.limit())
+      throw new IllegalArgumentException("entity type catalogue is truncated or corrupt");
+
+    int at = buff.getInt(12);
+    for (int level = 0; level < TRIE_LEVELS; level++) {
+      int nodes = buff.getInt(at);
+      at += 4;
+      char[] values = new char[nodes];
+      for (int i = 0; i < nodes; i++, at += 2)
+        values[i] = buff.getChar(at);
+      int[] firstChild = new int[nodes + 1];
+      for (int i = 0; i <= nodes; i++, at += 4)
+        firstChild[i] = buff.getInt(at);
+      trieValues[level] = values;
+      trieFirstChild[level] = firstChild;
+    }
+  }
+
+  /**
+   * @param file catalogue written by the generator
+   * @return the catalogue, memory-mapped
+   * @throws IOException if the file cannot be read
+   */
+  public static EntityTypeCatalogue map(Path file) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new EntityTypeCatalogue(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * @param buff buffer holding a whole catalogue from index 0
+   * @return the catalogue, reading from the buffer
+   */
+  public static EntityTypeCatalogue wrap(ByteBuffer buff)
+  {
+    return new EntityTypeCatalogue(buff);
+  }
+
+  /**
+   * @return the catalogue on the classpath, loaded on first use, or null if there is none
+   * @throws IOException if the catalogue cannot be read
+   */
+  public static synchronized EntityTypeCatalogue getDefault() throws IOException
+  {
+    if (defaultCatalogue == null) {
+      URL url = EntityTypeCatalogue.class.getResource(RESOURCE);
+      if (url == null)
+        return null;
+      if ("file".equals(url.getProtocol())) {
+        try {
+          defaultCatalogue = map(Paths.get(url.toURI()));
+        }
+        catch (URISyntaxException ex) {
+          throw new IOException(ex);
+        }
+      }
+      else {
+        try (InputStream ins = url.openStream()) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          byte[] chunk = new byte[8192];
+          for (int n; (n = ins.read(chunk)) > 0;)
+            bytes.write(chunk, 0, n);
+          defaultCatalogue = new EntityTypeCatalogue(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+      }
+    }
+    return defaultCatalogue;
+  }
+
+  /**
+   * @return number of entity types in the catalogue
+   */
+  public int size()
+  {
+    return count;
+  }
+
+  /**
+   * @param index record number, 0 to size() - 1; records are in packed key order
+   * @return the packed key of the record
+   */
+  public long getKey(int index)
+  {
+    return buff.getLong(HEADER_SIZE + index * RECORD_SIZE);
+  }
+
+  /**
+   * @param index record number, 0 to size() - 1
+   * @return the uid of the record
+   */
+  public int getUid(int index)
+  {
+    return buff.getInt(HEADER_SIZE + index * RECORD_SIZE + 8);
+  }
+
+  /**
+   * @param index record number, 0 to size() - 1
+   * @return the description of the record
+   */
+  public String getDescription(int index)
+  {
+    int at = stringTableStart + buff.getInt(HEADER_SIZE + index * RECORD_SIZE + 12);
+    int length = buff.getShort(at) & 0xFFFF;
+    byte[] utf8 = new byte[length];
+    ByteBuffer str = buff.duplicate();
+    str.position(at + 2);
+    str.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param packedKey entity type fields packed in marshalled order
+   * @return number of the first record with the key, or -1 if the key is not in the catalogue
+   */
+  public int indexOfKey(long packedKey)
+  {
+    int low = 0;
+    int high = count - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long key = getKey(mid);
+      // keys are compared unsigned, as the generator sorted them, so that kinds above 127 follow the rest
+      int cmp = Long.compareUnsigned(key, packedKey);
+      if (cmp < 0)
+        low = mid + 1;
+      else {
+        if (cmp == 0)
+          found = mid;
+        high = mid - 1;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * @param uid SISO entity type uid
+   * @return number of the record with the uid, or -1 if the uid is not in the catalogue
+   */
+  public int indexOfUid(int uid)
+  {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int at = uidIndexStart + mid * UID_INDEX_ENTRY_SIZE;
+      int midUid = buff.getInt(at);
+      if (midUid < uid)
+        low = mid + 1;
+      else if (midUid > uid)
+        high = mid - 1;
+      else
+        return buff.getInt(at + 4);
+    }
+    return -1;
+  }
+
+  /**
+   * Visits, in key order, every entity type whose fields match; ANY matches every value of a field.  The search
+   * allocates only three small arrays, for the field values and their lowest and highest bounds, not per match.
+   * @param kind EntityKind value or ANY
+   * @param domain domain value or ANY
+   * @param country Country value or ANY
+   * @param category category or ANY
+   * @param subcategory subcategory or ANY
+   * @param specific specific or ANY
+   * @param visitor receives the record number of each match
+   * @return number of matches
+   */
+  public int forEachMatch(int kind, int domain, int country, int category, int subcategory, int specific, Visitor visitor)
+  {
+    int[] values = {kind, domain, country, category, subcategory, specific};
+    int[] lowest = new int[TRIE_LEVELS];
+    int[] highest = new int[TRIE_LEVELS];
+    for (int level = 0; level < TRIE_LEVELS; level++) {
+      lowest[level] = values[level] == ANY ? 0 : values[level];
+      highest[level] = values[level] == ANY ? LEVEL_MAXIMUMS[level] : values[level];
+    }
+    return forEachMatch(lowest, highest, visitor);
+  }
+
+  /**
+   * Visits, in key order, every entity type whose fields all lie in the given ranges
+   * @param lowest per level, KIND to SPECIFIC, the lowest matching value
+   * @param highest per level, the highest matching value
+   * @param visitor receives the record number of each match
+   * @return number of matches
+   */
+  public int forEachMatch(int[] lowest, int[] highest, Visitor visitor)
+  {
+    return matchRange(0, 0, trieValues[0].length, lowest, highest, visitor);
+  }
+
+  private int matchRange(int level, int from, int to, int[] lowest, int[] highest, Visitor visitor)
+  {
+    char[] values = trieValues[level];
+    int[] firstChild = trieFirstChild[level];
+    int matches = 0;
+    for (int node = firstAtLeast(values, from, to, lowest[level]); node < to && values[node] <= highest[level]; node++) {
+      if (level == SPECIFIC)
+        matches += visitRecords(firstChild[node], firstChild[node + 1], visitor);
+      else
+        matches += matchRange(level + 1, firstChild[node], firstChild[node + 1], lowest, highest, visitor);
+    }
+    return matches;
+  }
+
+  private static int visitRecords(int from, int to, Visitor visitor)
+  {
+    for (int index = from; index < to; index++)
+      visitor.visit(index);
+    return to - from;
+  }
+
+  /** The first of the sorted sibling nodes from..to-1 with a value of at least value, or to if there is none */
+  private static int firstAtLeast(char[] values, int from, int to, int value)
+  {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * @param packedKey entity type fields packed in marshalled order
+   * @return the lowest uid with the key, or -1 if the key is not in the catalogue
+   */
+  public int uidFor(long packedKey)
+  {
+    int index = indexOfKey(packedKey);
+    return index < 0 ? -1 : getUid(index);
+  }
+
+  /**
+   * Looks up a marshalled entity type without unmarshalling it
+   * @param marshalled buffer holding a marshalled EntityType
+   * @param index absolute index of the EntityType
+   * @return the lowest uid of the entity type, or -1 if it is not in the catalogue
+   */
+  public int uidFor(ByteBuffer marshalled, int index)
+  {
+    return uidFor(marshalled.getLong(index));
+  }
+
+  /**
+   * @param uid SISO entity type uid
+   * @return the packed key of the entity type
+   * @throws IllegalArgumentException if the uid is not in the catalogue
+   */
+  public long packedKeyFor(int uid)
+  {
+    int index = indexOfUid(uid);
+    if (index < 0)
+      throw new IllegalArgumentException("no entity type with uid " + uid);
+    return getKey(index);
+  }
+
+  /**
+   * @param uid SISO entity type uid
+   * @return the description of the entity type, or null if the uid is not in the catalogue
+   */
+  public String descriptionFor(int uid)
+  {
+    int index = indexOfUid(uid);
+    return index < 0 ? null : getDescription(index);
+  }
+}
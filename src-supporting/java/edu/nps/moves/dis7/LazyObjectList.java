@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * LazyObjectList.java created on Oct 17, 2026
+ * List of marshalled records left in the buffer they were read from, used for the object list fields of PDUs generated
+ * with xmlpg.lazyObjectLists=true.  Unmarshalling only steps over the records; each element is unmarshalled the first
+ * time get(i) asks for it and kept, so a receiver that ignores a list never pays for its elements.
+ * <p>
+ * The list reads the buffer's content when an element is first asked for, so that content must not be overwritten
+ * while the list is in use; a receiver that reuses its buffer should call get on the elements it wants first.
+ * Any change to the list itself unmarshals every element into an ordinary list, after which the buffer is no longer
+ * read.  As with the element objects of an eagerly unmarshalled list, unmarshalling the same PDU again refills the
+ * elements already decoded rather than allocating new ones.  Not thread-safe, like the PDUs holding it.
+ * @param <E> element type
+ */
+public class LazyObjectList<E> extends AbstractList<E> implements RandomAccess
+{
+  /** Unmarshals one element from a buffer positioned at its first byte, e.g. VariableParameter::unmarshal */
+  public interface Reader<E>
+  {
+    void read(E element, ByteBuffer buff) throws Exception;
+  }
+
+  /** Finds the end of a marshalled element without unmarshalling it, e.g. VariableDatum::skip */
+  public interface Locator
+  {
+    int skip(ByteBuffer buff, int offset);
+  }
+
+  /** Private duplicate of the source buffer; null once the list holds ordinary elements */
+  private ByteBuffer source;
+  /** The buffer source duplicates, so unmarshalling from it again reuses the duplicate, heap or direct */
+  private ByteBuffer sourceOwner;
+  /** Absolute index of the first element in the source buffer */
+  private int base;
+  private int count;
+  /** Marshalled size of every element, or 0 when the elements differ and their offsets are held instead */
+  private int elementSize;
+  /** Start of each element relative to base, then the end of the last */
+  private int[] offsets = new int[0];
+  private Supplier<E> factory;
+  private Reader<E> reader;
+
+  /** Element objects decoded so far, kept to be refilled by the next unmarshal */
+  private Object[] elements = new Object[0];
+  /** Which of the elements hold the records of the current source */
+  private boolean[] decoded = new boolean[0];
+  /** The elements once the list has been changed */
+  private ArrayList<E> changed;
+
+  /**
+   * Reads a list of records with the same marshalled size, advancing the buffer's position past them.
+   * @param <E> element type
+   * @param list the list the field held before, reused if it is a LazyObjectList
+   * @param buff buffer positioned at the first record
+   * @param count number of records
+   * @param elementSize marshalled size of each record
+   * @param factory creates an element object
+   * @param reader unmarshals an element object
+   * @return the list
+   * @throws BufferUnderflowException if the records run past the buffer's limit
+   */
+  public static <E> List<E> read(List<E> list, ByteBuffer buff, int count, int elementSize, Supplier<E> factory, Reader<E> reader)
+  {
+    long end = buff.position() + (long)count * elementSize;
+    if (end > buff.limit())
+      throw new BufferUnderflowException();
+    LazyObjectList<E> lazy = reuse(list);
+    lazy.wrap(buff, count, factory, reader);
+    lazy.elementSize = elementSize;
+    buff.position((int)end);
+    return lazy;
+  }
+
+  /**
+   * Reads a list of records whose sizes differ, locating each one and advancing the buffer's position past them.
+   * @param <E> element type
+   * @param list the list the field held before, reused if it is a LazyObjectList
+   * @param buff buffer positioned at the first record
+   * @param count number of records
+   * @param locator finds the end of a record
+   * @param factory creates an element object
+   * @param reader unmarshals an element object
+   * @return the list
+   * @throws BufferUnderflowException if the records run past the buffer's limit
+   */
+  public static <E> List<E> read(List<E> list, ByteBuffer buff, int count, Locator locator, Supplier<E> factory, Reader<E> reader)
+  {
+    LazyObjectList<E> lazy = reuse(list);
+    lazy.wrap(buff, count, factory, reader);
+    lazy.elementSize = 0;
+    if (lazy.offsets.length <= count)
+      lazy.offsets = new int[count + 1];
+    int pos = lazy.base;
+    for (int i = 0; i < count; i++) {
+      lazy.offsets[i] = pos - lazy.base;
+      try {
+        pos = locator.skip(buff, pos);
+      }
+      catch (IndexOutOfBoundsException ex) { // a length field of the record lies past the end of the buffer
+        throw new BufferUnderflowException();
+      }
+      if (pos > buff.limit())
+        throw new BufferUnderflowException();
+    }
+    lazy.offsets[count] = pos - lazy.base;
+    buff.position(pos);
+    return lazy;
+  }
+
+  /**
+   * Marshalled size of an object list field without unmarshalling elements of a LazyObjectList that no one has looked
+   * at; an element that has been decoded may have been changed, so it is asked its size.
+   * @param <E> element type
+   * @param list the field
+   * @param sizer marshalled size of an element, e.g. VariableDatum::getMarshalledSize
+   * @return total marshalled size of the elements in bytes
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> int marshalledSize(List<E> list, ToIntFunction<E> sizer)
+  {
+    int size = 0;
+    if (list instanceof LazyObjectList && ((LazyObjectList<E>)list).source != null) {
+      LazyObjectList<E> lazy = (LazyObjectList<E>)list;
+      if (lazy.elementSize > 0)
+        return lazy.count * lazy.elementSize;
+      for (int i = 0; i < lazy.count; i++)
+        size += lazy.decoded[i] ? sizer.applyAsInt((E)lazy.elements[i]) : lazy.offsets[i + 1] - lazy.offsets[i];
+      return size;
+    }
+    for (int i = 0; i < list.size(); i++)
+      size += sizer.applyAsInt(list.get(i));
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> LazyObjectList<E> reuse(List<E> list)
+  {
+    return list instanceof LazyObjectList ? (LazyObjectList<E>)list : new LazyObjectList<>();
+  }
+
+  private void wrap(ByteBuffer buff, int count, Supplier<E> factory, Reader<E> reader)
+  {
+    if (source == null || buff != sourceOwner) {
+      source = buff.duplicate();
+      sourceOwner = buff;
+    }
+    source.order(buff.order());
+    base = buff.position();
+    this.count = count;
+    this.factory = factory;
+    this.reader = reader;
+    if (elements.length < count) {
+      elements = Arrays.copyOf(elements, count);
+      decoded = new boolean[count];
+    }
+    else
+      Arrays.fill(decoded, 0, count, false);
+    changed = null;
+    modCount++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index)
+  {
+    if (changed != null)
+      return changed.get(index);
+    if (index < 0 || index >= count)
+      throw new IndexOutOfBoundsException("index " + index + ", size " + count);
+    if (!decoded[index]) {
+      if (elements[index] == null)
+        elements[index] = factory.get();
+      int start = base + (elementSize > 0 ? index * elementSize : offsets[index]);
+      int end = base + (elementSize > 0 ? (index + 1) * elementSize : offsets[index + 1]);
+      source.limit(end).position(start);
+      try {
+        reader.read((E)elements[index], source);
+      }
+      catch (RuntimeException e) {
+        throw e;
+      }
+      catch (Exception e) {
+        throw new IllegalStateException("cannot unmarshal list element " + index, e);
+      }
+      decoded[index] = true;
+    }
+    return (E)elements[index];
+  }
+
+  @Override
+  public int size()
+  {
+    return changed != null ? changed.size() : count;
+  }
+
+  @Override
+  public E set(int index, E element)
+  {
+    return materialize().set(index, element);
+  }
+
+  @Override
+  public void add(int index, E element)
+  {
+    materialize().add(index, element);
+    modCount++;
+  }
+
+  @Override
+  public E remove(int index)
+  {
+    E removed = materialize().remove(index);
+    modCount++;
+    return removed;
+  }
+
+  @Override
+  public void clear()
+  {
+    if (changed == null)
+      changed = new ArrayList<>();
+    else
+      changed.clear();
+    source = null;
+    sourceOwner = null;
+    modCount++;
+  }
+
+  /** Decodes every element into an ordinary list, which holds the elements from then on */
+  private ArrayList<E> materialize()
+  {
+    if (changed == null) {
+      ArrayList<E> all = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+        all.add(get(i));
+      changed = all;
+      source = null;
+      sourceOwner = null;
+    }
+    return changed;
+  }
+}
@@ -57,6 +57,9 @@ public class PduStatus
   public static byte AII_NOT_ACTIVE = (byte) 0b00000000; // bit 5
   public static byte AII_ACTIVE = (byte) 0b00100000;
 
+  /** Marshalled size in bytes */
+  public static final int MARSHALLED_SIZE = 1;
+
   private byte value = 0;
 
   public PduStatus()
@@ -78,6 +81,14 @@ public class PduStatus
     return value;
   }
 
+  /**
+   * Clears every status bit so a pooled record can be filled again
+   */
+  public void reset()
+  {
+    value = 0;
+  }
+
   public byte orTo(byte b)
   {
     value |= b;
@@ -132,12 +143,54 @@ public class PduStatus
     return 1;
   }
 
+    /**
+     * Unpacks from an absolute index without changing the buffer position, as used by the generated views.
+     * @param buff The ByteBuffer holding the marshalled data
+     * @param index absolute index of the marshalled value
+     * @return marshalled serialized size in bytes
+     */
+  public int unmarshal(ByteBuffer buff, int index)
+  {
+    value = buff.get(index);
+    return 1;
+  }
+
+    /**
+     * Packs into a byte array, as used by the generated marshal(byte[], int).
+     * @param dst array to write into
+     * @param index index of the marshalled value
+     * @return index just past the marshalled value
+     */
+  public int marshal(byte[] dst, int index)
+  {
+    dst[index] = value;
+    return index + 1;
+  }
+
+    /**
+     * Unpacks from a byte array, as used by the generated unmarshal(byte[], int).
+     * @param src array holding the marshalled data
+     * @param index index of the marshalled value
+     * @return index just past the marshalled value
+     */
+  public int unmarshal(byte[] src, int index)
+  {
+    value = src[index];
+    return index + 1;
+  }
+
   @Override
   public boolean equals(Object obj)
   {
     return obj instanceof PduStatus && ((PduStatus) obj).getValue() == getValue();
   }
   
+  @Override
+  public int hashCode()
+  {
+    return value;
+  }
+
   @Override
   public String toString()
   {
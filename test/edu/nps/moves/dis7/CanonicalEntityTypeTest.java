@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import edu.nps.moves.dis7.enumerations.Country;
+import edu.nps.moves.dis7.enumerations.EntityKind;
+import edu.nps.moves.dis7.enumerations.PlatformDomain;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * CanonicalEntityTypeTest.java created on Oct 17, 2026
+ * Entity types read or interned by any route share one instance per set of field values, equal to a plain EntityType
+ * with those values.
+ */
+public class CanonicalEntityTypeTest
+{
+  /** A US land platform, category 1, subcategory 2, specific 3, extra 4 */
+  private static EntityType usLandPlatform()
+  {
+    return new EntityType().setEntityKind(EntityKind.getEnumForValue(1))
+                           .setDomain(Domain.inst(PlatformDomain.getEnumForValue(1)))
+                           .setCountry(Country.getEnumForValue(225))
+                           .setCategory((byte) 1)
+                           .setSubCategory((byte) 2)
+                           .setSpecific((byte) 3)
+                           .setExtra((byte) 4);
+  }
+
+  private static byte[] marshalled(EntityType type) throws Exception
+  {
+    ByteBuffer buff = ByteBuffer.allocate(EntityType.MARSHALLED_SIZE);
+    type.marshal(buff);
+    return buff.array();
+  }
+
+  @Test
+  public void everyRouteInternsOneInstance() throws Exception
+  {
+    EntityType plain = usLandPlatform();
+    byte[] bytes = marshalled(plain);
+    CanonicalEntityType interned = CanonicalEntityType.intern(plain);
+
+    assertSame(interned, CanonicalEntityType.read(ByteBuffer.wrap(bytes)));
+    assertSame(interned, CanonicalEntityType.read(ByteBuffer.wrap(bytes), 0));
+    byte[] offset = new byte[bytes.length + 3];
+    System.arraycopy(bytes, 0, offset, 3, bytes.length);
+    assertSame(interned, CanonicalEntityType.read(offset, 3));
+    assertSame(interned, CanonicalEntityType.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+    assertSame(interned, CanonicalEntityType.intern(usLandPlatform()));
+    assertSame(interned, CanonicalEntityType.intern(interned));
+    assertSame(interned, CanonicalEntityType.intern(CanonicalEntityType.packedKey(plain)));
+    assertEquals(ByteBuffer.wrap(bytes).getLong(), interned.getPackedKey());
+  }
+
+  @Test
+  public void differentFieldsInternDifferentInstances()
+  {
+    EntityType other = usLandPlatform().setExtra((byte) 5);
+    assertNotSame(CanonicalEntityType.intern(usLandPlatform()), CanonicalEntityType.intern(other));
+    assertFalse(CanonicalEntityType.intern(usLandPlatform()).equals(other));
+  }
+
+  @Test
+  public void equalsPlainEntityType()
+  {
+    EntityType plain = usLandPlatform();
+    CanonicalEntityType interned = CanonicalEntityType.intern(plain);
+    assertEquals(plain, interned);
+    assertEquals(interned, plain);
+    assertEquals(plain.hashCode(), interned.hashCode());
+    assertEquals(plain.getEntityKind(), interned.getEntityKind());
+    assertEquals(plain.getDomain(), interned.getDomain());
+    assertEquals(plain.getCountry(), interned.getCountry());
+    assertEquals(plain.getCategory(), interned.getCategory());
+    assertEquals(plain.getSubCategory(), interned.getSubCategory());
+    assertEquals(plain.getSpecific(), interned.getSpecific());
+    assertEquals(plain.getExtra(), interned.getExtra());
+  }
+
+  @Test
+  public void defaultIsNewEntityType()
+  {
+    assertEquals(new EntityType(), CanonicalEntityType.DEFAULT);
+    assertSame(CanonicalEntityType.DEFAULT, CanonicalEntityType.intern(new EntityType()));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void internedIsImmutable()
+  {
+    CanonicalEntityType.intern(usLandPlatform()).setCategory((byte) 9);
+  }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * EntityTypeCatalogueTest.java created on Oct 17, 2026
+ * A small catalogue laid out as the entity type generator writes it is found by key and uid, and its trie searches
+ * visit the same records as a scan of every record.
+ */
+public class EntityTypeCatalogueTest
+{
+  private static final int ANY = EntityTypeCatalogue.ANY;
+
+  /** Packed key, uid and description of each entity type, in key order and, for a repeated key, uid order */
+  private static final Object[][] ENTITY_TYPES = {
+    {key(1, 1, 71, 1, 1, 0, 0), 20001, "Leclerc"},
+    {key(1, 1, 225, 1, 1, 1, 0), 10001, "M1 Abrams"},
+    {key(1, 1, 225, 1, 1, 1, 0), 10009, "M1 Abrams, repeated"},
+    {key(1, 1, 225, 1, 1, 1, 2), 10002, "M1 Abrams, extra 2"},
+    {key(1, 1, 225, 1, 1, 2, 0), 10003, "M1A1"},
+    {key(1, 1, 225, 2, 3, 0, 0), 10004, "M2 Bradley"},
+    {key(1, 2, 225, 1, 1, 0, 0), 10005, "F-16"},
+    {key(1, 2, 225, 1, 2, 0, 0), 10006, "F-16C"},
+    {key(2, 2, 225, 1, 1, 0, 0), 10007, "Air-to-air missile"},
+    {key(0xFE, 0, 0xFFFF, 0xFF, 0xFF, 0xFF, 0xFF), 99, "Kind above 127"},
+  };
+
+  private static final int[] TRIE_SHIFTS = {56, 48, 32, 24, 16, 8};
+  private static final int[] TRIE_MASKS  = {0xFF, 0xFF, 0xFFFF, 0xFF, 0xFF, 0xFF};
+
+  private static long key(int kind, int domain, int country, int category, int subcategory, int specific, int extra)
+  {
+    return (long) kind << 56 | (long) domain << 48 | (long) country << 32 | (long) category << 24
+         | subcategory << 16 | specific << 8 | extra;
+  }
+
+  private static long keyOf(int index)
+  {
+    return (Long) ENTITY_TYPES[index][0];
+  }
+
+  /** The catalogue format of GenerateEntityTypes.saveCatalogue, over ENTITY_TYPES */
+  private static byte[] catalogueBytes() throws IOException
+  {
+    int count = ENTITY_TYPES.length;
+    ByteArrayOutputStream strings = new ByteArrayOutputStream();
+    DataOutputStream stringOut = new DataOutputStream(strings);
+    int[] descriptionOffsets = new int[count];
+    for (int i = 0; i < count; i++) {
+      descriptionOffsets[i] = stringOut.size();
+      byte[] utf8 = ((String) ENTITY_TYPES[i][2]).getBytes(StandardCharsets.UTF_8);
+      stringOut.writeShort(utf8.length);
+      stringOut.write(utf8);
+    }
+    Integer[] byUid = new Integer[count];
+    for (int i = 0; i < count; i++)
+      byUid[i] = i;
+    Arrays.sort(byUid, (a, b) -> Integer.compare((Integer) ENTITY_TYPES[a][1], (Integer) ENTITY_TYPES[b][1]));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bytes);
+    dos.writeInt(EntityTypeCatalogue.MAGIC);
+    dos.writeInt(count);
+    int stringTableOffset = 16 + count * (16 + 8);
+    dos.writeInt(stringTableOffset);
+    dos.writeInt(stringTableOffset + strings.size());
+    for (int i = 0; i < count; i++) {
+      dos.writeLong(keyOf(i));
+      dos.writeInt((Integer) ENTITY_TYPES[i][1]);
+      dos.writeInt(descriptionOffsets[i]);
+    }
+    for (int i : byUid) {
+      dos.writeInt((Integer) ENTITY_TYPES[i][1]);
+      dos.writeInt(i);
+    }
+    strings.writeTo(dos);
+
+    List<List<Integer>> nodeStarts = new ArrayList<>();
+    for (int shift : TRIE_SHIFTS) {
+      List<Integer> starts = new ArrayList<>();
+      for (int i = 0; i < count; i++)
+        if (i == 0 || keyOf(i) >>> shift != keyOf(i - 1) >>> shift)
+          starts.add(i);
+      nodeStarts.add(starts);
+    }
+    for (int level = 0; level < TRIE_SHIFTS.length; level++) {
+      List<Integer> starts = nodeStarts.get(level);
+      dos.writeInt(starts.size());
+      for (int start : starts)
+        dos.writeShort((int) (keyOf(start) >>> TRIE_SHIFTS[level]) & TRIE_MASKS[level]);
+      List<Integer> children = level == TRIE_SHIFTS.length - 1 ? null : nodeStarts.get(level + 1);
+      for (int start : starts)
+        dos.writeInt(children == null ? start : children.indexOf(start));
+      dos.writeInt(children == null ? count : children.size());
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void assertFindsEntityTypes(EntityTypeCatalogue catalogue)
+  {
+    assertEquals(ENTITY_TYPES.length, catalogue.size());
+    for (int i = 0; i < ENTITY_TYPES.length; i++) {
+      int uid = (Integer) ENTITY_TYPES[i][1];
+      assertEquals(keyOf(i), catalogue.getKey(i));
+      assertEquals(uid, catalogue.getUid(i));
+      assertEquals(i, catalogue.indexOfUid(uid));
+      assertEquals(ENTITY_TYPES[i][2], catalogue.descriptionFor(uid));
+      assertEquals(keyOf(i), catalogue.packedKeyFor(uid));
+    }
+    assertEquals(1, catalogue.indexOfKey(key(1, 1, 225, 1, 1, 1, 0))); // the first of a repeated key
+    assertEquals(10001, catalogue.uidFor(key(1, 1, 225, 1, 1, 1, 0)));
+    assertEquals(9, catalogue.indexOfKey(key(0xFE, 0, 0xFFFF, 0xFF, 0xFF, 0xFF, 0xFF)));
+    assertEquals(-1, catalogue.indexOfKey(key(1, 1, 225, 1, 1, 3, 0)));
+    assertEquals(-1, catalogue.indexOfKey(0));
+    assertEquals(-1, catalogue.indexOfUid(12345));
+    assertNull(catalogue.descriptionFor(12345));
+  }
+
+  @Test
+  public void wrappedCatalogueFindsKeysAndUids() throws Exception
+  {
+    assertFindsEntityTypes(EntityTypeCatalogue.wrap(ByteBuffer.wrap(catalogueBytes())));
+  }
+
+  @Test
+  public void mappedCatalogueFindsKeysAndUids() throws Exception
+  {
+    Path file = Files.createTempFile("entityTypeCatalogue", ".bin");
+    try {
+      Files.write(file, catalogueBytes());
+      assertFindsEntityTypes(EntityTypeCatalogue.map(file));
+    }
+    finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void uidForMarshalledEntityType() throws Exception
+  {
+    EntityTypeCatalogue catalogue = EntityTypeCatalogue.wrap(ByteBuffer.wrap(catalogueBytes()));
+    ByteBuffer buff = ByteBuffer.allocate(16);
+    buff.putLong(8, key(1, 2, 225, 1, 2, 0, 0));
+    assertEquals(10006, catalogue.uidFor(buff, 8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void packedKeyForUnknownUid() throws Exception
+  {
+    EntityTypeCatalogue.wrap(ByteBuffer.wrap(catalogueBytes())).packedKeyFor(12345);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void notACatalogue()
+  {
+    EntityTypeCatalogue.wrap(ByteBuffer.allocate(64));
+  }
+
+  @Test
+  public void forEachMatchVisitsWhatAScanFinds() throws Exception
+  {
+    EntityTypeCatalogue catalogue = EntityTypeCatalogue.wrap(ByteBuffer.wrap(catalogueBytes()));
+    int[][] choices = { // per field, ANY, values in the catalogue and a value that is not
+      {ANY, 1, 2, 0xFE, 3},
+      {ANY, 0, 1, 2, 4},
+      {ANY, 71, 225, 0xFFFF, 72},
+      {ANY, 1, 2, 0xFF, 4},
+      {ANY, 1, 2, 3, 0xFF},
+      {ANY, 0, 1, 2, 0xFF},
+    };
+    int[] fields = new int[6];
+    int[] choice = new int[6];
+    int queries = 0;
+    do {
+      for (int level = 0; level < 6; level++)
+        fields[level] = choices[level][choice[level]];
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < ENTITY_TYPES.length; i++) {
+        boolean match = true;
+        for (int level = 0; level < 6; level++)
+          match &= fields[level] == ANY || fields[level] == ((int) (keyOf(i) >>> TRIE_SHIFTS[level]) & TRIE_MASKS[level]);
+        if (match)
+          expected.add(i);
+      }
+      List<Integer> visited = new ArrayList<>();
+      int matches = catalogue.forEachMatch(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], visited::add);
+      assertEquals(Arrays.toString(fields), expected, visited);
+      assertEquals(expected.size(), matches);
+      queries++;
+    }
+    while (next(choice, choices));
+    assertEquals(15625, queries);
+  }
+
+  /** Steps through every combination of choices, returning false after the last */
+  private static boolean next(int[] choice, int[][] choices)
+  {
+    for (int level = choice.length - 1; level >= 0; level--) {
+      if (++choice[level] < choices[level].length)
+        return true;
+      choice[level] = 0;
+    }
+    return false;
+  }
+
+  @Test
+  public void forEachMatchOfRanges() throws Exception
+  {
+    EntityTypeCatalogue catalogue = EntityTypeCatalogue.wrap(ByteBuffer.wrap(catalogueBytes()));
+    List<Integer> visited = new ArrayList<>();
+    // US land and air platforms of categories 1 and 2
+    int matches = catalogue.forEachMatch(new int[]{1, 1, 225, 1, 0, 0}, new int[]{1, 2, 225, 2, 0xFF, 0xFF}, visited::add);
+    assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), visited);
+    assertEquals(7, matches);
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * LazyObjectListTest.java created on Oct 17, 2026
+ * A lazy list over truncated input fails as the eager unmarshalling does, with BufferUnderflowException, and
+ * unmarshalling from the same buffer again reuses the list, its elements and its duplicate of the buffer.
+ */
+public class LazyObjectListTest
+{
+  @Test
+  public void readsRecordsOfOneSize()
+  {
+    ByteBuffer buff = ByteBuffer.allocate(2 * EntityID.MARSHALLED_SIZE);
+    List<EntityID> list = LazyObjectList.read(new ArrayList<>(), buff, 2, EntityID.MARSHALLED_SIZE, EntityID::new, EntityID::unmarshal);
+    assertEquals(2, list.size());
+    assertEquals(0, buff.remaining());
+  }
+
+  @Test
+  public void reusesDuplicateOfDirectBuffer() throws Exception
+  {
+    ByteBuffer buff = ByteBuffer.allocateDirect(2 * EntityID.MARSHALLED_SIZE);
+    new EntityID().setSiteID((short)1).marshal(buff);
+    new EntityID().setSiteID((short)2).marshal(buff);
+    buff.flip();
+    List<EntityID> list = LazyObjectList.read(new ArrayList<>(), buff, 2, EntityID.MARSHALLED_SIZE, EntityID::new, EntityID::unmarshal);
+    EntityID first = list.get(0);
+    assertEquals(1, first.getSiteID());
+    Object source = sourceOf(list);
+
+    buff.clear();
+    new EntityID().setSiteID((short)3).marshal(buff);
+    new EntityID().setSiteID((short)4).marshal(buff);
+    buff.flip();
+    assertSame(list, LazyObjectList.read(list, buff, 2, EntityID.MARSHALLED_SIZE, EntityID::new, EntityID::unmarshal));
+    assertSame(source, sourceOf(list));
+    assertSame(first, list.get(0));
+    assertEquals(3, list.get(0).getSiteID());
+    assertEquals(4, list.get(1).getSiteID());
+
+    ByteBuffer other = ByteBuffer.allocateDirect(2 * EntityID.MARSHALLED_SIZE);
+    LazyObjectList.read(list, other, 2, EntityID.MARSHALLED_SIZE, EntityID::new, EntityID::unmarshal);
+    assertNotSame(source, sourceOf(list));
+    assertEquals(0, list.get(0).getSiteID());
+  }
+
+  private static Object sourceOf(List<?> list) throws Exception
+  {
+    Field source = LazyObjectList.class.getDeclaredField("source");
+    source.setAccessible(true);
+    return source.get(list);
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void truncatedRecordsOfOneSize()
+  {
+    ByteBuffer buff = ByteBuffer.allocate(2 * EntityID.MARSHALLED_SIZE - 1);
+    LazyObjectList.read(new ArrayList<>(), buff, 2, EntityID.MARSHALLED_SIZE, EntityID::new, EntityID::unmarshal);
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void truncatedValueOfLocatedRecord() throws Exception
+  {
+    ByteBuffer buff = ByteBuffer.allocate(64);
+    new VariableDatum().setVariableDatumValue(new byte[12]).marshal(buff);
+    buff.flip().limit(buff.limit() - 8);
+    LazyObjectList.read(new ArrayList<>(), buff, 1, VariableDatum::skip, VariableDatum::new, VariableDatum::unmarshal);
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void truncatedLengthOfLocatedRecord() throws Exception
+  {
+    ByteBuffer buff = ByteBuffer.allocate(64);
+    new VariableDatum().setVariableDatumValue(new byte[12]).marshal(buff);
+    new VariableDatum().setVariableDatumValue(new byte[12]).marshal(buff);
+    buff.flip().limit(30);
+    LazyObjectList.read(new ArrayList<>(), buff, 2, VariableDatum::skip, VariableDatum::new, VariableDatum::unmarshal);
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import edu.nps.moves.dis7.enumerations.MinefieldDataFusing;
+import edu.nps.moves.dis7.enumerations.MinefieldDataPaintScheme;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * MinefieldDataPduTest.java created on Oct 17, 2026
+ * The static locators and the view find the end of a MinefieldDataPdu, whose lists of bitfields follow lists of records
+ * and are counted by fields at the front.
+ */
+public class MinefieldDataPduTest
+{
+  private static final int MINES = 3;
+  private static final int OFFSET = 5;
+
+  private static MinefieldDataPdu newMinefieldDataPdu()
+  {
+    List<MinefieldSensorType> sensorTypes = new ArrayList<>();
+    sensorTypes.add(new MinefieldSensorType());
+    sensorTypes.add(new MinefieldSensorType());
+    List<Vector3Float> locations = new ArrayList<>();
+    List<EulerAngles> orientations = new ArrayList<>();
+    List<MineEmplacementTime> times = new ArrayList<>();
+    List<MinefieldDataFusing> fusing = new ArrayList<>();
+    List<MinefieldDataPaintScheme> paintScheme = new ArrayList<>();
+    for (int i = 0; i < MINES; i++) {
+      locations.add(new Vector3Float().setX(i));
+      orientations.add(new EulerAngles());
+      times.add(new MineEmplacementTime().setHour(i));
+      fusing.add(new MinefieldDataFusing());
+      paintScheme.add(new MinefieldDataPaintScheme());
+    }
+    return new MinefieldDataPdu()
+        .setSensorTypes(sensorTypes)
+        .setMineLocation(locations)
+        .setGroundBurialDepthOffset(new float[MINES])
+        .setWaterBurialDepthOffset(new float[MINES])
+        .setSnowBurialDepthOffset(new float[MINES])
+        .setMineOrientation(orientations)
+        .setThermalContrast(new float[MINES])
+        .setReflectance(new float[MINES])
+        .setMineEmplacementTime(times)
+        .setMineEntityNumber(new short[]{1, 2, 3})
+        .setFusing(fusing)
+        .setScalarDetectionCoefficient(new byte[MINES])
+        .setPaintScheme(paintScheme)
+        .setNumberOfTripDetonationWires(new byte[]{4, 5, 6})
+        .setNumberOfVertices(new byte[]{7, 8, 9});
+  }
+
+  /** The PDU marshalled at OFFSET, with bytes of another PDU after it; the position is left just past it */
+  private static ByteBuffer marshalled(MinefieldDataPdu pdu) throws Exception
+  {
+    ByteBuffer buff = ByteBuffer.allocate(OFFSET + pdu.getMarshalledSize() + 16);
+    buff.position(OFFSET);
+    pdu.marshal(buff);
+    return buff;
+  }
+
+  @Test
+  public void skipFindsEnd() throws Exception
+  {
+    ByteBuffer buff = marshalled(newMinefieldDataPdu());
+    int end = buff.position();
+
+    assertEquals(end, MinefieldDataPdu.skip(buff, OFFSET));
+    assertEquals(end - MINES, MinefieldDataPdu.offsetOfNumberOfVertices(buff, OFFSET));
+    assertEquals(8, buff.get(MinefieldDataPdu.offsetOfNumberOfVertices(buff, OFFSET) + 1));
+  }
+
+  @Test
+  public void viewReadsPastBitfieldLists() throws Exception
+  {
+    MinefieldDataPdu pdu = newMinefieldDataPdu();
+    ByteBuffer buff = marshalled(pdu);
+    MinefieldDataPduView view = new MinefieldDataPduView();
+    view.wrap(buff, OFFSET);
+
+    assertEquals(buff.position() - OFFSET, view.getMarshalledSize());
+    assertEquals(MINES, view.getFusingCount());
+    assertNotNull(view.getFusing(MINES - 1, new MinefieldDataFusing()));
+    assertEquals(MINES, view.getNumberOfVerticesCount());
+    assertEquals(9, view.getNumberOfVertices(2));
+    assertEquals(6, view.getNumberOfTripDetonationWires(2));
+  }
+}
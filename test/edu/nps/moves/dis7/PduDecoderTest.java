@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import edu.nps.moves.dis7.enumerations.DISPDUType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * PduDecoderTest.java created on Oct 17, 2026
+ * Every PDU type, generated or hand-written, decodes alone and in a bundle to a PDU of the class it was sent as.
+ */
+public class PduDecoderTest
+{
+  /** One newly constructed PDU of every type that has a PDU class */
+  private static List<Pdu> everyPdu()
+  {
+    List<Pdu> pdus = new ArrayList<>();
+    for (DISPDUType type : DISPDUType.values()) {
+      if (type == DISPDUType.OTHER)
+        continue;
+      Pdu pdu = PduDecoder.newPdu(type);
+      assertNotNull("no PDU class for " + type, pdu);
+      assertSame(type, pdu.getPduType());
+      pdus.add(pdu);
+    }
+    return pdus;
+  }
+
+  @Test
+  public void decodesEveryPduType() throws Exception
+  {
+    for (Pdu sent : everyPdu()) {
+      Pdu received = PduDecoder.decode(sent.marshal());
+      assertNotNull("decode returned null for " + sent.getPduType(), received);
+      assertSame(sent.getClass(), received.getClass());
+      assertEquals(sent, received);
+    }
+  }
+
+  @Test
+  public void decodesSignalPdus() throws Exception
+  {
+    assertSame(SignalPdu.class, PduDecoder.newPdu(DISPDUType.SIGNAL).getClass());
+    assertSame(IntercomSignalPdu.class, PduDecoder.newPdu(DISPDUType.INTERCOM_SIGNAL).getClass());
+  }
+
+  @Test
+  public void decodesBundleOfEveryPduType() throws Exception
+  {
+    List<Pdu> sent = everyPdu();
+    ByteBuffer bundle = ByteBuffer.allocate(sent.size() * DirectBufferPool.MAX_PDU_SIZE / 64);
+    for (Pdu pdu : sent)
+      pdu.marshal(bundle);
+    bundle.flip();
+
+    List<Pdu> received = new ArrayList<>();
+    assertEquals(sent.size(), PduDecoder.decodeBundle(bundle, received));
+    for (int i = 0; i < sent.size(); i++)
+      assertSame(sent.get(i).getClass(), received.get(i).getClass());
+    assertEquals(0, bundle.remaining());
+  }
+}
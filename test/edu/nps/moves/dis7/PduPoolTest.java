@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import edu.nps.moves.dis7.enumerations.DISPDUType;
+import edu.nps.moves.dis7.enumerations.VariableRecordType;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * PduPoolTest.java created on Oct 17, 2026
+ * A PduPool refills the list elements of an idle PDU when receiving, and resets a PDU, variable datums included,
+ * when handing it out for sending.
+ */
+public class PduPoolTest
+{
+  private static ByteBuffer marshalledDataPdu(int datums) throws Exception
+  {
+    DataPdu pdu = new DataPdu();
+    for (int i = 0; i < datums; i++)
+      pdu.getVariableDatums().add(new VariableDatum().setVariableDatumValue(new byte[]{(byte) i, 2, 3}));
+    ByteBuffer buff = ByteBuffer.allocate(DirectBufferPool.MAX_PDU_SIZE);
+    pdu.marshal(buff);
+    buff.flip();
+    return buff;
+  }
+
+  @Test
+  public void unmarshalReusesListElements() throws Exception
+  {
+    PduPool pool = new PduPool();
+    DataPdu first = (DataPdu) pool.unmarshal(marshalledDataPdu(3));
+    VariableDatum datum = first.getVariableDatums().get(2);
+    byte[] value = datum.getVariableDatumValue();
+    pool.release(first);
+
+    DataPdu second = (DataPdu) pool.unmarshal(marshalledDataPdu(3));
+    assertSame(first, second);
+    assertSame(datum, second.getVariableDatums().get(2));
+    assertSame(value, datum.getVariableDatumValue());
+    assertEquals(2, datum.getVariableDatumValue()[0]);
+  }
+
+  @Test
+  public void acquireResetsPdu() throws Exception
+  {
+    PduPool pool = new PduPool();
+    DataPdu received = (DataPdu) pool.unmarshal(marshalledDataPdu(2));
+    pool.release(received);
+
+    DataPdu acquired = (DataPdu) pool.acquire(DISPDUType.DATA);
+    assertSame(received, acquired);
+    assertEquals(new DataPdu(), acquired);
+  }
+
+  @Test
+  public void variableDatumResetsToConstructedValues()
+  {
+    VariableDatum datum = new VariableDatum()
+        .setVariableDatumID(VariableRecordType.values()[1])
+        .setVariableDatumValue(new byte[]{1, 2, 3})
+        .setVariableDatumLengthInBits(20);
+    datum.reset();
+    assertEquals(new VariableDatum(), datum);
+    assertEquals(0, datum.getVariableDatumValue().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void releaseRejectsPduWithoutType()
+  {
+    new PduPool().release(new DataPdu().setPduType(null));
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * SignalPduTest.java created on Oct 17, 2026
+ * Round trips of the hand-written SignalPdu through Pdu.marshalTo and DirectBufferPool, which leave the buffer's
+ * position and limit as they found them.
+ */
+public class SignalPduTest
+{
+  private static SignalPdu newSignalPdu(int payloadBytes)
+  {
+    SignalPdu pdu = new SignalPdu();
+    byte[] data = new byte[payloadBytes];
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) (i * 7 + 1);
+    pdu.setData(data);
+    pdu.setSampleRate(8000);
+    pdu.setSamples((short) payloadBytes);
+    return pdu;
+  }
+
+  private static SignalPdu unmarshal(ByteBuffer buff, int offset, int length) throws Exception
+  {
+    ByteBuffer view = buff.duplicate();
+    view.limit(offset + length).position(offset);
+    SignalPdu received = new SignalPdu();
+    received.unmarshal(view);
+    assertEquals("unmarshal consumed the whole PDU", offset + length, view.position());
+    return received;
+  }
+
+  @Test
+  public void marshalToWritesWholePduAndLeavesBufferAlone() throws Exception
+  {
+    SignalPdu pdu = newSignalPdu(5);
+    ByteBuffer buff = ByteBuffer.allocate(DirectBufferPool.MAX_PDU_SIZE);
+    buff.position(3).limit(1000);
+
+    int written = pdu.marshalTo(buff, 16);
+
+    assertEquals(pdu.getMarshalledSize(), written);
+    assertEquals(3, buff.position());
+    assertEquals(1000, buff.limit());
+    assertArrayEquals(pdu.marshal(), java.util.Arrays.copyOfRange(buff.array(), 16, 16 + written));
+
+    SignalPdu received = unmarshal(buff, 16, written);
+    assertArrayEquals(pdu.getData(), received.getData());
+    assertEquals(pdu.getSampleRate(), received.getSampleRate());
+  }
+
+  @Test
+  public void marshalToTwiceIntoSameBuffer() throws Exception
+  {
+    SignalPdu first = newSignalPdu(3);
+    SignalPdu second = newSignalPdu(9);
+    ByteBuffer buff = ByteBuffer.allocateDirect(DirectBufferPool.MAX_PDU_SIZE);
+
+    int firstLength = first.marshalTo(buff, 0);
+    int secondLength = second.marshalTo(buff, firstLength);
+
+    assertEquals(first.getMarshalledSize(), firstLength);
+    assertEquals(second.getMarshalledSize(), secondLength);
+    assertArrayEquals(first.getData(), unmarshal(buff, 0, firstLength).getData());
+    assertArrayEquals(second.getData(), unmarshal(buff, firstLength, secondLength).getData());
+  }
+
+  @Test
+  public void pooledBufferHoldsPdu() throws Exception
+  {
+    DirectBufferPool pool = new DirectBufferPool();
+    for (int payload : new int[] {1, 4, 1024}) {
+      SignalPdu pdu = newSignalPdu(payload);
+      ByteBuffer buff = pool.marshal(pdu);
+
+      assertEquals(0, buff.position());
+      assertEquals(pdu.getMarshalledSize(), buff.limit());
+      assertArrayEquals(pdu.getData(), unmarshal(buff, 0, buff.limit()).getData());
+      pool.release(buff);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2008-2020, MOVES Institute, Naval Postgraduate School (NPS). All rights reserved.
+ * This work is provided under a BSD open-source license, see project license.html and license.txt
+ */
+
+package edu.nps.moves.dis7;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * VariableDatumTest.java created on Oct 17, 2026
+ * Variable datums whose values are not a multiple of 64 bits are padded alike by every codec, streams included.
+ */
+public class VariableDatumTest
+{
+  private static ActionRequestPdu newActionRequestPdu()
+  {
+    ActionRequestPdu pdu = new ActionRequestPdu();
+    pdu.getVariableDatums().add(new VariableDatum().setVariableDatumValue(new byte[]{1, 2, 3}));
+    pdu.getVariableDatums().add(new VariableDatum().setVariableDatumValue(new byte[]{4, 5, 6, 7, 8, 9, 10, 11, 12}));
+    return pdu;
+  }
+
+  @Test
+  public void streamRoundTrip() throws Exception
+  {
+    ActionRequestPdu sent = newActionRequestPdu();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    sent.marshal(new DataOutputStream(bytes));
+
+    ActionRequestPdu received = new ActionRequestPdu();
+    received.unmarshal(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(sent, received);
+    assertEquals(2, received.getVariableDatums().size());
+    assertArrayEquals(new byte[]{4, 5, 6, 7, 8, 9, 10, 11, 12}, received.getVariableDatums().get(1).getVariableDatumValue());
+  }
+
+  @Test
+  public void streamAndBufferBytesAgree() throws Exception
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    newActionRequestPdu().marshal(new DataOutputStream(bytes));
+    ByteBuffer buff = ByteBuffer.allocate(DirectBufferPool.MAX_PDU_SIZE);
+    newActionRequestPdu().marshal(buff);
+
+    assertArrayEquals(Arrays.copyOf(buff.array(), buff.position()), bytes.toByteArray());
+  }
+
+  /** A datum starting off a 64-bit boundary of the stream is padded to one of the stream */
+  @Test
+  public void unalignedDatumInStream() throws Exception
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bytes);
+    dos.writeInt(0x01020304);
+    new VariableDatum().setVariableDatumValue(new byte[]{1, 2, 3}).marshal(dos);
+    dos.writeInt(0x05060708);
+
+    DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertEquals(0x01020304, dis.readInt());
+    VariableDatum datum = new VariableDatum();
+    assertEquals(bytes.size() - 8, datum.unmarshal(4, dis));
+    assertEquals(0x05060708, dis.readInt());
+  }
+}